@@ -2,9 +2,12 @@ package eu.Divish.tabSBS;
 
 import eu.Divish.tabSBS.boot.DependencyGuard;
 import eu.Divish.tabSBS.lang.LangManager;
+import eu.Divish.tabSBS.util.ComponentCache;
 import eu.Divish.tabSBS.util.Console;
+import eu.Divish.tabSBS.papi.AnimationService;
 import eu.Divish.tabSBS.papi.PapiExpansionAutoInstaller;
 import eu.Divish.tabSBS.papi.PapiValidationListener;
+import eu.Divish.tabSBS.papi.PlaceholderService;
 import eu.Divish.tabSBS.papi.PlaceholderValidator;
 import eu.Divish.tabSBS.scoreboard.ScoreboardConfig;
 import eu.Divish.tabSBS.scoreboard.ScoreboardRuntime;
@@ -36,6 +39,8 @@ public final class TabSBS extends JavaPlugin {
     private LangManager lang;
     private ScoreboardRuntime sbRuntime;
     private WorldsGate worldsGate;
+    private PlaceholderService placeholders; // NOVĚ: sdílené PAPI memo pro všechny moduly
+    private AnimationService animations;     // NOVĚ: pojmenované animace (%animation:x%)
 
     // šířka ASCII rámečku (v počtu viditelných znaků)
     private static final int BOX_WIDTH = 88;
@@ -72,11 +77,17 @@ public final class TabSBS extends JavaPlugin {
             return; // plugin byl vypnut uvnitř guardu
         }
 
+        // NOVĚ: sdílené vyhodnocení placeholderů (tablist, scoreboard, sorting, nametagy)
+        this.placeholders = new PlaceholderService(this);
+        Bukkit.getPluginManager().registerEvents(placeholders, this);
+        this.animations = new AnimationService(this);
+        this.placeholders.setAnimations(animations);
+
         // 3) načtení scoreboard configu
         ScoreboardConfig sbCfg = new ScoreboardConfig(this);
 
         // 4) runtime (manager + overlay) – zatím jen připraveno
-        this.sbRuntime = new ScoreboardRuntime(this, sbCfg);
+        this.sbRuntime = new ScoreboardRuntime(this, sbCfg, placeholders);
 
         // 5) světy (whitelist/blacklist) + listener
         this.worldsGate = new WorldsGate(this);
@@ -100,7 +111,7 @@ public final class TabSBS extends JavaPlugin {
 
         // --- NAMETAG: INIT (PŘESUNUTO VÝŠ kvůli anti-blink integraci se sortingem) ---
         this.nametagCfg = new eu.Divish.tabSBS.nametag.NametagConfig(this);
-        this.nametagSvc = new eu.Divish.tabSBS.nametag.NametagService(this, nametagCfg, this.worldsGate, this.vaultPerms, this.vaultChat);
+        this.nametagSvc = new eu.Divish.tabSBS.nametag.NametagService(this, nametagCfg, this.worldsGate, this.vaultPerms, this.vaultChat, this.placeholders);
 
         // Listener nad service
         getServer().getPluginManager().registerEvents(
@@ -115,12 +126,14 @@ public final class TabSBS extends JavaPlugin {
 
         // Tablist config + managery
         this.tabCfg = eu.Divish.tabSBS.tablist.TablistConfig.load(this);
-        this.tablistMgr = new eu.Divish.tabSBS.tablist.TablistManager(this, tabCfg, this.worldsGate);
+        this.tablistMgr = new eu.Divish.tabSBS.tablist.TablistManager(this, tabCfg, this.worldsGate, this.placeholders);
 
         // PŘEDÁNÍ nametagSvc do TabSortingService (anti-blink při přesazení do tsNNN týmů)
         this.tabSorting = new eu.Divish.tabSBS.tablist.TabSortingService(
-                this, tabCfg, this.worldsGate, this.vaultPerms, this.vaultChat, this.nametagSvc
+                this, tabCfg, this.worldsGate, this.vaultPerms, this.vaultChat, this.nametagSvc, this.placeholders
         );
+        // NOVĚ: v režimu scoreboard_mode: packet dekoruje NametagService packet týmy sortingu
+        this.nametagSvc.setPacketTeams(this.tabSorting.packetTeams());
 
         // Listener
         getServer().getPluginManager().registerEvents(
@@ -136,16 +149,23 @@ public final class TabSBS extends JavaPlugin {
 
         // === TABLIST: INIT END ===
 
+        // NOVĚ: animace – posun framu překreslí jen texty, které animaci obsahují
+        animations.addListener(tablistMgr::onAnimationsAdvanced);
+        animations.addListener(sbRuntime.manager()::onAnimationsAdvanced);
+        animations.addListener(nametagSvc::onAnimationsAdvanced);
+        animations.start();
+
         // 6) PAPI: auto instalační helper + validace placeholderů
-        PapiExpansionAutoInstaller auto = new PapiExpansionAutoInstaller(this, lang);
+        PapiExpansionAutoInstaller auto = new PapiExpansionAutoInstaller(this, lang, this.placeholders);
         Bukkit.getGlobalRegionScheduler().runDelayed(this, t -> {
             auto.ensureForScoreboard(sbCfg, () -> {
-                // po /papi reload přerenderuj všechny hráče
+                // po /papi reload zahodíme memo a přerenderujeme všechny hráče
+                placeholders.clear();
                 if (sbRuntime != null) sbRuntime.refreshAll();
             });
 
             Bukkit.getPluginManager().registerEvents(
-                    new PapiValidationListener(this, new PlaceholderValidator(this, lang), sbCfg, lang),
+                    new PapiValidationListener(this, new PlaceholderValidator(this, lang, this.placeholders), sbCfg, lang),
                     this
             );
         }, 40L);
@@ -163,7 +183,9 @@ public final class TabSBS extends JavaPlugin {
                 this.lang,
                 this.sbRuntime,
                 this.tabSorting,
-                this.nametagSvc   // <— Sem jde NametagService
+                this.nametagSvc,  // <— Sem jde NametagService
+                this.tablistMgr,
+                this.placeholders
         );
         Objects.requireNonNull(getCommand("tabsbs")).setExecutor(cmd);
         Objects.requireNonNull(getCommand("tabsbs")).setTabCompleter(cmd);
@@ -205,6 +227,18 @@ public final class TabSBS extends JavaPlugin {
             } catch (Throwable ignored) {
             }
         }
+        if (animations != null) {
+            try {
+                animations.stop();
+            } catch (Throwable ignored) {
+            }
+        }
+        if (placeholders != null) {
+            try {
+                placeholders.shutdown();
+            } catch (Throwable ignored) {
+            }
+        }
     }
 
     /**
@@ -454,6 +488,9 @@ public final class TabSBS extends JavaPlugin {
         reloadConfig();
         lang.reload();
         if (worldsGate != null) worldsGate.reload();
+        if (placeholders != null) placeholders.reload();
+        if (animations != null) animations.reload();
+        ComponentCache.clear(); // nové barvy/formáty → staré komponenty už nepotřebujeme
 
         // 3) načti nové konfigurace modulů
         // TABLIST
@@ -7,10 +7,15 @@ import eu.Divish.tabSBS.TabSBS;
 import eu.Divish.tabSBS.lang.LangManager;
 import eu.Divish.tabSBS.nametag.NametagService;
 import eu.Divish.tabSBS.papi.PapiExpansionAutoInstaller;
+import eu.Divish.tabSBS.papi.PlaceholderProfiler;
+import eu.Divish.tabSBS.papi.PlaceholderService;
 import eu.Divish.tabSBS.papi.PlaceholderValidator;
 import eu.Divish.tabSBS.scoreboard.ScoreboardConfig;
 import eu.Divish.tabSBS.scoreboard.ScoreboardRuntime;
 import eu.Divish.tabSBS.tablist.TabSortingService;
+import eu.Divish.tabSBS.tablist.TablistManager;
+import eu.Divish.tabSBS.util.BoundedCache;
+import eu.Divish.tabSBS.util.ComponentCache;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
@@ -37,6 +42,8 @@ public final class TabsbsCommand implements TabExecutor, TabCompleter {
     private final ScoreboardRuntime sbRuntime;
     private final TabSortingService tabSorting;
     private final NametagService nametagSvc;
+    private final TablistManager tablist;
+    private final PlaceholderService placeholders;
     private static final LegacyComponentSerializer LEGACY_AMP = LegacyComponentSerializer.builder()
             .character('&').hexColors().useUnusualXRepeatedCharacterHexFormat().build();
 
@@ -47,13 +54,17 @@ public final class TabsbsCommand implements TabExecutor, TabCompleter {
             LangManager lang,
             ScoreboardRuntime sbRuntime,
             TabSortingService tabSorting,
-            NametagService nametagSvc
+            NametagService nametagSvc,
+            TablistManager tablist,
+            PlaceholderService placeholders
     ) {
         this.plugin = plugin;
         this.lang = lang;
         this.sbRuntime = sbRuntime;
         this.tabSorting = tabSorting;
         this.nametagSvc = nametagSvc;
+        this.tablist = tablist;
+        this.placeholders = placeholders;
     }
 
     @Override
@@ -74,6 +85,7 @@ public final class TabsbsCommand implements TabExecutor, TabCompleter {
 
                 case "nametag" -> handleNametag(sender, label, Arrays.copyOfRange(args, 1, args.length));
                 case "papi"     -> handlePapi(sender, label, Arrays.copyOfRange(args, 1, args.length));
+                case "stats"    -> stats(sender);
 
                 case "scoreboard" -> {
                     requirePerm(sender, "tabsbs.scoreboard.refresh");
@@ -184,16 +196,22 @@ public final class TabsbsCommand implements TabExecutor, TabCompleter {
     }
 
     // -------- PAPI --------
+    private static final int PROFILE_ROWS = 10;
+
     private void handlePapi(CommandSender sender, String label, String[] args) throws NoPermission {
-        if (args.length == 0) { usage(sender, label, "papi <ensure|test>"); return; }
+        if (args.length == 0) { usage(sender, label, "papi <ensure|test|profile>"); return; }
         String sub = args[0].toLowerCase(Locale.ROOT);
 
         switch (sub) {
             case "ensure" -> {
                 requirePerm(sender, "tabsbs.papi.ensure");
-                var auto = new PapiExpansionAutoInstaller(plugin, lang);
+                var auto = new PapiExpansionAutoInstaller(plugin, lang, placeholders);
                 var sbCfg = new ScoreboardConfig(plugin);
-                auto.ensureForScoreboard(sbCfg, () -> { if (sbRuntime != null) sbRuntime.refreshAll(); });
+                auto.ensureForScoreboard(sbCfg, () -> {
+                    // po /papi reload zahodíme memo i negativní cache
+                    if (placeholders != null) placeholders.clear();
+                    if (sbRuntime != null) sbRuntime.refreshAll();
+                });
                 msgKey(sender, "commands.papi.ensure.started");
             }
             case "test" -> {
@@ -202,11 +220,66 @@ public final class TabsbsCommand implements TabExecutor, TabCompleter {
                 String token = args[1];
                 Player target = (args.length >= 3) ? Bukkit.getPlayerExact(args[2]) : (sender instanceof Player pl ? pl : null);
                 if (target == null) { msgKey(sender, "commands.common.target_player_required"); return; }
-                boolean ok = new PlaceholderValidator(plugin, lang).testPlaceholderOn(target, token);
+                boolean ok = new PlaceholderValidator(plugin, lang, placeholders).testPlaceholderOn(target, token);
                 msgKey(sender, ok ? "commands.papi.test.ok" : "commands.papi.test.fail", "player", target.getName());
             }
-            default -> usage(sender, label, "papi <ensure|test>");
+            case "profile" -> {
+                requirePerm(sender, "tabsbs.papi.profile");
+                if (placeholders == null) { msgKey(sender, "commands.papi.profile.empty"); return; }
+                PlaceholderProfiler profiler = placeholders.profiler();
+                if (args.length >= 2 && args[1].equalsIgnoreCase("reset")) {
+                    profiler.reset();
+                    msgKey(sender, "commands.papi.profile.reset_ok");
+                    return;
+                }
+                List<PlaceholderProfiler.Row> rows = profiler.snapshot();
+                if (rows.isEmpty()) { msgKey(sender, "commands.papi.profile.empty"); return; }
+                msgKey(sender, "commands.papi.profile.header", "count", rows.size());
+                for (PlaceholderProfiler.Row r : rows.subList(0, Math.min(PROFILE_ROWS, rows.size()))) {
+                    msgKey(sender, "commands.papi.profile.row",
+                            "token", r.token(),
+                            "calls", r.lookups(),
+                            "ratio", String.format(Locale.ROOT, "%.1f", r.hitRatio() * 100.0),
+                            "evals", r.evals(),
+                            "total", PlaceholderProfiler.formatMicros(r.totalMicros()),
+                            "avg", PlaceholderProfiler.formatMicros(r.avgMicros()),
+                            "p50", PlaceholderProfiler.formatMicros(r.p50()),
+                            "p95", PlaceholderProfiler.formatMicros(r.p95()),
+                            "p99", PlaceholderProfiler.formatMicros(r.p99()),
+                            "max", PlaceholderProfiler.formatMicros(r.max()),
+                            "interval", PlaceholderProfiler.formatMicros(placeholders.intervalTicks(r.token()) * 50_000L));
+                }
+            }
+            default -> usage(sender, label, "papi <ensure|test|profile>");
+        }
+    }
+
+    // -------- STATS --------
+    private void stats(CommandSender sender) throws NoPermission {
+        requirePerm(sender, "tabsbs.stats");
+        BoundedCache.Stats cc = ComponentCache.stats();
+        msgKey(sender, "commands.stats.component_cache",
+                "size", cc.size(),
+                "max", cc.maxEntries(),
+                "hits", cc.hits(),
+                "misses", cc.misses(),
+                "ratio", String.format(Locale.ROOT, "%.1f", cc.hitRatio() * 100.0),
+                "evictions", cc.evictions());
+        if (placeholders != null) {
+            msgKey(sender, "commands.stats.papi_unresolved", "count", placeholders.unresolvedCount());
         }
+        if (tablist == null) { msgKey(sender, "commands.stats.unavailable"); return; }
+        TablistManager.SendStats ss = tablist.sendStats();
+        long total = ss.sent() + ss.skipped();
+        msgKey(sender, "commands.stats.tablist_sends",
+                "sent", ss.sent(),
+                "skipped", ss.skipped(),
+                "same", ss.skippedSame(),
+                "equal", ss.skippedEqual(),
+                "ratio", String.format(Locale.ROOT, "%.1f", total == 0 ? 0.0 : ss.skipped() * 100.0 / total));
+        msgKey(sender, "commands.stats.tablist_renders",
+                "renders", ss.renders(),
+                "shared", ss.shared());
     }
 
     // -------- TEAM DEBUG --------
@@ -299,12 +372,12 @@ public final class TabsbsCommand implements TabExecutor, TabCompleter {
     // ------ TAB COMPLETER ------
     @Override
     public List<String> onTabComplete(CommandSender s, Command cmd, String alias, String[] args) {
-        if (args.length == 1) return begins(args[0], List.of("help","version","reload","sort","nametag","papi","scoreboard","team","update"));
+        if (args.length == 1) return begins(args[0], List.of("help","version","reload","sort","nametag","papi","scoreboard","team","update","stats"));
         if (args.length == 2) {
             return switch (args[0].toLowerCase(Locale.ROOT)) {
                 case "sort" -> begins(args[1], List.of("now"));
                 case "nametag" -> begins(args[1], List.of("refresh","clear"));
-                case "papi" -> begins(args[1], List.of("ensure","test"));
+                case "papi" -> begins(args[1], List.of("ensure","test","profile"));
                 case "scoreboard" -> begins(args[1], List.of("refresh"));
                 case "team" -> online(args[1]);
                 case "update" -> begins(args[1], List.of("confirm","cancel"));
@@ -314,7 +387,8 @@ public final class TabsbsCommand implements TabExecutor, TabCompleter {
         if (args.length == 3) {
             return switch (args[0].toLowerCase(Locale.ROOT)) {
                 case "nametag" -> begins(args[2], withOnlinePlusAll());
-                case "papi" -> args[1].equalsIgnoreCase("test") ? online(args[2]) : List.of();
+                case "papi" -> args[1].equalsIgnoreCase("test") ? online(args[2])
+                        : args[1].equalsIgnoreCase("profile") ? begins(args[2], List.of("reset")) : List.of();
                 case "team" -> online(args[2]);
                 default -> List.of();
             };
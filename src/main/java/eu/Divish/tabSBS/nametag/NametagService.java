@@ -1,8 +1,10 @@
 package eu.Divish.tabSBS.nametag;
 
+import eu.Divish.tabSBS.papi.AnimationService;
+import eu.Divish.tabSBS.papi.PlaceholderService;
+import eu.Divish.tabSBS.tablist.PacketTeamBackend;
 import eu.Divish.tabSBS.worlds.WorldsGate;
-import me.clip.placeholderapi.PlaceholderAPI;
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import eu.Divish.tabSBS.util.ComponentCache;
 import net.milkbowl.vault.chat.Chat;
 import net.milkbowl.vault.permission.Permission;
 import org.bukkit.Bukkit;
@@ -36,9 +38,6 @@ import java.util.*;
  */
 public final class NametagService {
 
-    private static final LegacyComponentSerializer LEGACY =
-            LegacyComponentSerializer.builder().character('&').hexColors().useUnusualXRepeatedCharacterHexFormat().build();
-
     private static final String SORT_TEAM_PREFIX = "ts";      // z TabSortingService
     private static final String OWN_TEAM_PREFIX  = "nt_";     // naše per-player týmy když sorting není
     private static final String MARKER_OLD       = "tabsbs";  // legacy čistění, just in case
@@ -48,19 +47,32 @@ public final class NametagService {
     private final WorldsGate worldsGate; // může být null
     private final Permission perms;      // může být null
     private final Chat chat;             // může být null
+    private final PlaceholderService placeholders;
 
     private io.papermc.paper.threadedregions.scheduler.ScheduledTask loop = null;
     private boolean running = false;
 
+    // NOVĚ: packet-only týmy ze sortingu (scoreboard_mode: packet); může být null
+    private PacketTeamBackend packetTeams = null;
+
+    // NOVĚ: hráči, jejichž Vault prefix/suffix obsahuje %animation:x% → jména animací
+    private final Map<UUID, Set<String>> animatedTargets = new java.util.concurrent.ConcurrentHashMap<>();
+
     public NametagService(Plugin plugin, NametagConfig cfg, WorldsGate worldsGate,
-                          Permission perms, Chat chat) {
+                          Permission perms, Chat chat, PlaceholderService placeholders) {
         this.plugin = plugin;
+        this.placeholders = placeholders;
         this.cfg = cfg;
         this.worldsGate = worldsGate;
         this.perms = perms;
         this.chat = chat;
     }
 
+    /** NOVĚ: napojení na packet týmy sortingu – hráč s packet týmem se dekoruje 1× pro všechny viewery. */
+    public void setPacketTeams(PacketTeamBackend packetTeams) {
+        this.packetTeams = packetTeams;
+    }
+
     // ---------- lifecycle ----------
 
     public void start() {
@@ -108,10 +120,27 @@ public final class NametagService {
         }
     }
 
+    /** Posunuly se animace → přenasaď nametag jen hráčům, jejichž prefix/suffix je používá. */
+    public void onAnimationsAdvanced(Set<String> names) {
+        if (!running || !cfg.enabled() || animatedTargets.isEmpty()) return;
+        for (Iterator<Map.Entry<UUID, Set<String>>> it = animatedTargets.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<UUID, Set<String>> e = it.next();
+            if (Collections.disjoint(e.getValue(), names)) continue;
+            Player target = Bukkit.getPlayer(e.getKey());
+            if (target == null) { it.remove(); continue; }
+            applyFor(target);
+        }
+    }
+
     /** Uklidí target hráče ze všech našich stop + odstraní dekorace i z "ts..." týmu. */
     public void clearFor(Player target) {
         if (target == null) return;
         String name = target.getName();
+
+        // packet tým: jen vrátit vzhled na vanilla (tým samotný patří sortingu)
+        String pt = packetTeamOf(target);
+        if (pt != null) packetTeams.decorate(pt, PacketTeamBackend.PLAIN);
+
         for (Player viewer : Bukkit.getOnlinePlayers()) {
             Scoreboard sb = viewer.getScoreboard();
 
@@ -127,8 +156,8 @@ public final class NametagService {
             // 2) z "ts..." týmu pouze odstraníme dekorace (prefix, suffix, barva, visibility)
             Team ts = findTeamContaining(sb, name, SORT_TEAM_PREFIX);
             if (ts != null) {
-                try { ts.prefix(LEGACY.deserialize("")); } catch (Throwable ignored) { try { ts.setPrefix(""); } catch (Throwable ignored2) {} }
-                try { ts.suffix(LEGACY.deserialize("")); } catch (Throwable ignored) { try { ts.setSuffix(""); } catch (Throwable ignored2) {} }
+                try { ts.prefix(ComponentCache.deserialize("")); } catch (Throwable ignored) { try { ts.setPrefix(""); } catch (Throwable ignored2) {} }
+                try { ts.suffix(ComponentCache.deserialize("")); } catch (Throwable ignored) { try { ts.setSuffix(""); } catch (Throwable ignored2) {} }
                 try { ts.color(NamedTextColor.WHITE); } catch (Throwable ignored) { try { ts.setColor(ChatColor.WHITE); } catch (Throwable ignored2) {} }
                 try { ts.setOption(Team.Option.NAME_TAG_VISIBILITY, Team.OptionStatus.ALWAYS); } catch (Throwable ignored) {}
             }
@@ -148,11 +177,21 @@ public final class NametagService {
     public void applyAll() {
         if (!cfg.enabled()) return;
 
+        // NOVĚ: hráči v packet týmech – vzhled se spočítá a rozešle 1× (ne na každý viewer board)
+        Set<UUID> viaPackets = new HashSet<>();
+        for (Player target : Bukkit.getOnlinePlayers()) {
+            String pt = packetTeamOf(target);
+            if (pt == null) continue;
+            packetTeams.decorate(pt, computeLook(target));
+            viaPackets.add(target.getUniqueId());
+        }
+
         for (Player viewer : Bukkit.getOnlinePlayers()) {
             if (!isAllowedHere(viewer)) continue;
 
             Scoreboard sb = viewer.getScoreboard();
             for (Player target : Bukkit.getOnlinePlayers()) {
+                if (viaPackets.contains(target.getUniqueId())) continue;
                 applyNametagFor(sb, target);
             }
         }
@@ -161,6 +200,11 @@ public final class NametagService {
     /** Public per-player refresh: nasadí targetovi NT na všech viewerech. */
     public void applyFor(Player target) {
         if (!cfg.enabled() || target == null) return;
+        String pt = packetTeamOf(target);
+        if (pt != null) {
+            packetTeams.decorate(pt, computeLook(target));
+            return;
+        }
         for (Player viewer : Bukkit.getOnlinePlayers()) {
             if (!isAllowedHere(viewer)) continue;
             Scoreboard sb = viewer.getScoreboard();
@@ -232,11 +276,53 @@ public final class NametagService {
         return null;
     }
 
+    private String packetTeamOf(Player target) {
+        return (packetTeams != null) ? packetTeams.teamOf(target.getName()) : null;
+    }
+
     private void decorateTeamFor(Team t, Player p) {
+        PacketTeamBackend.Look look = computeLook(p);
+
+        // 5) nasadit prefix/suffix
+        try { t.prefix(ComponentCache.deserialize(look.prefixLegacy())); } catch (Throwable ignored) {
+            try { t.setPrefix(translateAmpersand(look.prefixLegacy())); } catch (Throwable ignored2) {}
+        }
+        try { t.suffix(ComponentCache.deserialize(look.suffixLegacy())); } catch (Throwable ignored) {
+            try { t.setSuffix(translateAmpersand(look.suffixLegacy())); } catch (Throwable ignored2) {}
+        }
+
+        // 6) barva jména
+        ChatColor color = look.color();
+        if (color != null) {
+            NamedTextColor named = toNamed(color);
+            if (named != null) {
+                try { t.color(named); } catch (Throwable ignored) {
+                    try { t.setColor(color); } catch (Throwable ignored2) {}
+                }
+            }
+        }
+
+        // 7) viditelnost jmen (může přepsat vanilla default podle configu)
+        try { t.setOption(Team.Option.NAME_TAG_VISIBILITY, look.nameTagVisibility()); } catch (Throwable ignored) {}
+    }
+
+    /** Spočítá vzhled hráče (Vault prefix/suffix + AFK overlay + barva + visibility) – nezávisle na cílovém týmu. */
+    private PacketTeamBackend.Look computeLook(Player p) {
         // ----- 1) získat prefix/suffix z Vault Chat -----
         String px = (chat != null) ? safe(chat.getPlayerPrefix(p)) : "";
         String sx = (chat != null) ? safe(chat.getPlayerSuffix(p)) : "";
 
+        // NOVĚ: %animation:x% v prefixu/suffixu → aktuální frame (+ zapamatuj si, na čem hráč závisí)
+        AnimationService anim = placeholders != null ? placeholders.animations() : null;
+        if (anim != null) {
+            Set<String> used = new HashSet<>(AnimationService.namesIn(px));
+            used.addAll(AnimationService.namesIn(sx));
+            if (used.isEmpty()) animatedTargets.remove(p.getUniqueId());
+            else animatedTargets.put(p.getUniqueId(), used);
+            px = anim.apply(px);
+            sx = anim.apply(sx);
+        }
+
         // ----- 2) ořez délky -----
         px = cutTo(px, cfg.maxPrefixChars());
         sx = cutTo(sx, cfg.maxSuffixChars());
@@ -269,28 +355,7 @@ public final class NametagService {
         // 4) izolovaný prefix &r
         px = ensureEndsWithReset(px);
 
-        // 5) nasadit prefix/suffix
-        try { t.prefix(LEGACY.deserialize(px)); } catch (Throwable ignored) {
-            try { t.setPrefix(translateAmpersand(px)); } catch (Throwable ignored2) {}
-        }
-        try { t.suffix(LEGACY.deserialize(sx)); } catch (Throwable ignored) {
-            try { t.setSuffix(translateAmpersand(sx)); } catch (Throwable ignored2) {}
-        }
-
-        // 6) barva jména
-        ChatColor color = resolveColor(px);
-        if (color != null) {
-            NamedTextColor named = toNamed(color);
-            if (named != null) {
-                try { t.color(named); } catch (Throwable ignored) {
-                    try { t.setColor(color); } catch (Throwable ignored2) {}
-                }
-            }
-        }
-
-        // 7) viditelnost jmen (může přepsat vanilla default podle configu)
-        Team.OptionStatus vis = readNameTagVisibility();
-        try { t.setOption(Team.Option.NAME_TAG_VISIBILITY, vis); } catch (Throwable ignored) {}
+        return new PacketTeamBackend.Look(px, sx, resolveColor(px), readNameTagVisibility());
     }
 
     // ---------- AFK utils ----------
@@ -312,7 +377,7 @@ public final class NametagService {
     }
     private boolean isAfkByPapi(Player p) {
         String ph  = safe(plugin.getConfig().getString("modules.tablist.afk_display.placeholder", "%essentials_afk%"));
-        String raw = PlaceholderAPI.setPlaceholders(p, ph);
+        String raw = placeholders.apply(p, ph);
         if (raw != null && raw.contains("%")) raw = ""; // nevyřešený placeholder → ne-AFK
         String norm = stripLegacyColors(safe(raw)).trim().toLowerCase(Locale.ROOT);
         List<String> trues = plugin.getConfig().getStringList("modules.tablist.afk_display.true_values");
@@ -0,0 +1,200 @@
+package eu.Divish.tabSBS.papi;
+
+import eu.Divish.tabSBS.util.TextTemplate;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Pojmenované animace ze sekce "animations" – seznam framů + vlastní interval.
+ * - V textech (header, footer, title, řádky sidebaru, Vault prefix/suffix nametagů) jako %animation:jmeno%.
+ * - Plánovač běží každý tick (jen když nějaká animace existuje) a posune jen animace, kterým vypršel interval.
+ * - Posunuté animace oznámí posluchačům (moduly) → ty přerenderují jen texty, které je obsahují;
+ *   řádky bez animace se nedotknou a PAPI se kvůli animaci nevyhodnocuje znovu.
+ * - Hodnotu tokenu dodává PlaceholderService (sdílené memo → nová verze jen při změně framu).
+ *
+ * Vše na global region vlákně.
+ */
+public final class AnimationService {
+
+    private static final int DEFAULT_INTERVAL_MS = 500;
+    private static final int UNSET = Integer.MIN_VALUE;
+
+    private final Plugin plugin;
+
+    // jméno (lowercase) → animace
+    private volatile Map<String, Animation> animations = Map.of();
+    private final List<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledTask task = null;
+
+    public AnimationService(Plugin plugin) {
+        this.plugin = plugin;
+        load();
+    }
+
+    // ===== lifecycle =====
+
+    /** Spustí plánovač (jen pokud je co animovat). */
+    public void start() {
+        if (task != null || animations.isEmpty()) return;
+        task = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, t -> tick(), 1L, 1L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /** Znovu načte sekci animations a restartuje plánovač. */
+    public void reload() {
+        stop();
+        load();
+        start();
+    }
+
+    // ===== API =====
+
+    /** Posluchač dostane jména animací, které se právě posunuly o frame. */
+    public void addListener(Consumer<Set<String>> listener) {
+        listeners.add(listener);
+    }
+
+    /** Aktuální frame animace, null = neznámá animace. */
+    public String frame(String name) {
+        if (name == null) return null;
+        Animation a = animations.get(name);
+        return a != null ? a.frames[a.index] : null;
+    }
+
+    /** Přepíše všechny %animation:jmeno% v textu na aktuální framy (pro texty mimo šablony, např. Vault prefix). */
+    public String apply(String text) {
+        if (text == null || text.indexOf(TextTemplate.ANIMATION_PREFIX) < 0) return text;
+        StringBuilder out = new StringBuilder(text.length());
+        int last = 0;
+        int i = text.indexOf(TextTemplate.ANIMATION_PREFIX);
+        while (i >= 0) {
+            int end = text.indexOf('%', i + 1);
+            if (end < 0) break;
+            String name = nameOf(text.substring(i, end + 1));
+            String f = (name != null ? frame(name) : null); // "%animation:%" → zůstane doslova
+            if (f != null) {
+                out.append(text, last, i).append(f);
+                last = end + 1;
+            }
+            i = text.indexOf(TextTemplate.ANIMATION_PREFIX, end + 1);
+        }
+        return out.append(text, last, text.length()).toString();
+    }
+
+    /** "%animation:Title%" → "title"; jiný token → null. */
+    public static String nameOf(String token) {
+        if (!TextTemplate.isAnimationToken(token)) return null;
+        return token.substring(TextTemplate.ANIMATION_PREFIX.length(), token.length() - 1).toLowerCase(Locale.ROOT);
+    }
+
+    /** Jména animací použitých v šablonách. */
+    public static Set<String> namesIn(TextTemplate... templates) {
+        Set<String> out = new HashSet<>();
+        for (TextTemplate t : templates) {
+            if (t == null) continue;
+            for (String token : t.tokens()) {
+                String n = nameOf(token);
+                if (n != null) out.add(n);
+            }
+        }
+        return out;
+    }
+
+    /** Jména animací v libovolném textu (např. Vault prefix). */
+    public static Set<String> namesIn(String text) {
+        if (text == null || text.indexOf(TextTemplate.ANIMATION_PREFIX) < 0) return Set.of();
+        Set<String> out = new HashSet<>();
+        int i = text.indexOf(TextTemplate.ANIMATION_PREFIX);
+        while (i >= 0) {
+            int end = text.indexOf('%', i + 1);
+            if (end < 0) break;
+            String n = nameOf(text.substring(i, end + 1));
+            if (n != null) out.add(n);
+            i = text.indexOf(TextTemplate.ANIMATION_PREFIX, end + 1);
+        }
+        return out;
+    }
+
+    // ===== interní =====
+
+    private void tick() {
+        int now = Bukkit.getCurrentTick();
+        Set<String> advanced = null;
+        for (Map.Entry<String, Animation> e : animations.entrySet()) {
+            Animation a = e.getValue();
+            if (a.lastTick == UNSET) { a.lastTick = now; continue; } // první tick jen odstartuje interval
+            if (now - a.lastTick < a.intervalTicks) continue;
+            a.lastTick = now;
+            if (a.frames.length < 2) continue;
+            a.index = (a.index + 1) % a.frames.length;
+            if (advanced == null) advanced = new LinkedHashSet<>();
+            advanced.add(e.getKey());
+        }
+        if (advanced == null) return;
+        Set<String> names = Collections.unmodifiableSet(advanced);
+        for (Consumer<Set<String>> l : listeners) {
+            try { l.accept(names); } catch (Throwable t) { plugin.getLogger().warning("Animation listener failed: " + t); }
+        }
+    }
+
+    /**
+     * animations:
+     *   jmeno:
+     *     interval_ms: 250
+     *     frames: ["&bA", "&3A"]
+     * (zkráceně i jmeno: ["&bA", "&3A"] s výchozím intervalem)
+     */
+    private void load() {
+        Map<String, Animation> out = new HashMap<>();
+        ConfigurationSection sec = plugin.getConfig().getConfigurationSection("animations");
+        if (sec != null) {
+            for (String key : sec.getKeys(false)) {
+                List<String> frames;
+                int ms = DEFAULT_INTERVAL_MS;
+                if (sec.isConfigurationSection(key)) {
+                    ConfigurationSection a = sec.getConfigurationSection(key);
+                    frames = a.getStringList("frames");
+                    ms = a.getInt("interval_ms", DEFAULT_INTERVAL_MS);
+                } else {
+                    frames = sec.getStringList(key);
+                }
+                if (frames == null || frames.isEmpty()) continue;
+                int ticks = Math.max(1, (int) Math.ceil(Math.max(0, ms) / 50.0));
+                out.put(key.trim().toLowerCase(Locale.ROOT), new Animation(frames.toArray(new String[0]), ticks));
+            }
+        }
+        this.animations = Map.copyOf(out);
+    }
+
+    private static final class Animation {
+        final String[] frames;
+        final int intervalTicks;
+        volatile int index = 0;
+        int lastTick = UNSET;
+
+        Animation(String[] frames, int intervalTicks) {
+            this.frames = frames;
+            this.intervalTicks = intervalTicks;
+        }
+    }
+}
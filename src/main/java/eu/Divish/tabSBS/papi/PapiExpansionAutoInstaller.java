@@ -2,6 +2,7 @@ package eu.Divish.tabSBS.papi;
 
 import eu.Divish.tabSBS.lang.LangManager;
 import eu.Divish.tabSBS.scoreboard.ScoreboardConfig;
+import eu.Divish.tabSBS.util.AliasTable;
 import eu.Divish.tabSBS.util.Console;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
@@ -40,10 +41,12 @@ public final class PapiExpansionAutoInstaller {
     private final Plugin plugin;
     private final LangManager lang;
     private final Console cons;
+    private final PlaceholderService placeholders; // aliasy se berou živě (po /tabsbs reload ty nové)
 
-    public PapiExpansionAutoInstaller(Plugin plugin, LangManager lang) {
+    public PapiExpansionAutoInstaller(Plugin plugin, LangManager lang, PlaceholderService placeholders) {
         this.plugin = plugin;
         this.lang = lang;
+        this.placeholders = placeholders;
         this.cons = new Console(plugin, false);
     }
 
@@ -223,13 +226,14 @@ public final class PapiExpansionAutoInstaller {
      * Extract + alias normalize → vrací INSIDE (bez procent),
      * např. "Text %online% →" dá "server_online".
      */
-    private static Set<String> extractAndNormalize(String src) {
+    private Set<String> extractAndNormalize(String src) {
         Set<String> out = new LinkedHashSet<>();
         if (src == null || src.isEmpty()) return out;
+        AliasTable aliases = placeholders != null ? placeholders.aliases() : PlaceholderService.aliases(plugin);
         Matcher m = PAPI_TOKEN.matcher(src);
         while (m.find()) {
             String full = m.group();           // např. "%online%"
-            String norm = normalizeAliases(full);
+            String norm = aliases.apply(full);
             if (norm.length() >= 3 && norm.startsWith("%") && norm.endsWith("%")) {
                 out.add(norm.substring(1, norm.length() - 1)); // bez %...%
             }
@@ -278,16 +282,6 @@ public final class PapiExpansionAutoInstaller {
         return false;
     }
 
-    /** Aliasování krátkých placeholderů na reálné PAPI (stejně jako ScoreboardManager). */
-    private static String normalizeAliases(String s) {
-        if (s == null) return "";
-        return s.replace("%online%", "%server_online%")
-                .replace("%exp%", "%player_total_exp%")
-                .replace("%money%", "%vault_eco_balance_formatted%")
-                .replace("%kills%", "%statistic_player_kills%")
-                .replace("%deaths%", "%statistic_deaths%");
-    }
-
     /** Proveď příkaz v konzoli. */
     private void dispatch(ConsoleCommandSender console, String cmd) {
         Bukkit.dispatchCommand(console, cmd);
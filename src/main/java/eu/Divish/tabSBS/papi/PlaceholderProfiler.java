@@ -0,0 +1,156 @@
+package eu.Divish.tabSBS.papi;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Měření ceny placeholderů (volá ho jen PlaceholderService → pokrývá tablist, scoreboard, overlay,
+ * řazení i nametagy).
+ * - per token: počet dotazů, kolik z nich obsloužilo memo (hit), počet skutečných PAPI vyhodnocení
+ * - latence vyhodnocení v log2 bucketech (µs, styl HdrHistogramu), každá mocnina dvou dělená na SUB lineárních
+ *   pod-bucketů a kvantil se uvnitř pod-bucketu interpoluje → p50/p95/p99 s chybou ≤ 1/SUB, bez ukládání vzorků
+ * - zápis je lock-free (LongAdder/Atomic*), takže může běžet i z async poolu
+ *
+ * Výstup: /tabsbs papi profile [reset]
+ */
+public final class PlaceholderProfiler {
+
+    // pod-buckety na mocninu dvou (2^SUB_BITS); hodnoty pod SUB µs mají bucket po 1 µs
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    // nejvyšší mocnina dvou s vlastními buckety; vše od 2^(MAX_EXP+1) µs (~16,8 s) padne do posledního
+    private static final int MAX_EXP = 23;
+    private static final int BUCKETS = SUB + (MAX_EXP - SUB_BITS + 1) * SUB;
+
+    private final Map<String, Stat> stats = new ConcurrentHashMap<>();
+
+    /** Token obsloužený z mema (bez volání PAPI). */
+    public void recordHit(String token) {
+        Stat s = stat(token);
+        s.lookups.increment();
+        s.hits.increment();
+    }
+
+    /** Skutečné PAPI vyhodnocení tokenu a jeho doba. */
+    public void recordEval(String token, long nanos) {
+        Stat s = stat(token);
+        s.lookups.increment();
+        s.record(nanos);
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    /** Řádky seřazené podle celkového času vyhodnocení (nejdražší první). */
+    public List<Row> snapshot() {
+        List<Row> out = new ArrayList<>(stats.size());
+        for (Map.Entry<String, Stat> e : stats.entrySet()) out.add(e.getValue().row(e.getKey()));
+        out.sort(Comparator.comparingLong(Row::totalMicros).reversed());
+        return out;
+    }
+
+    /** µs → "850µs" / "12.3ms" / "1.20s". */
+    public static String formatMicros(long us) {
+        if (us < 1000L) return us + "µs";
+        if (us < 1_000_000L) return String.format(Locale.ROOT, "%.1fms", us / 1000.0);
+        return String.format(Locale.ROOT, "%.2fs", us / 1_000_000.0);
+    }
+
+    // ===== interní =====
+
+    private Stat stat(String token) {
+        return stats.computeIfAbsent(token, k -> new Stat());
+    }
+
+    /** µs → index: [0, SUB) přímo, nad tím SUB lineárních dílů každé mocniny dvou. */
+    static int bucketOf(long micros) {
+        if (micros < SUB) return (int) Math.max(0L, micros);
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        if (exp > MAX_EXP) return BUCKETS - 1;
+        int sub = (int) (micros >>> (exp - SUB_BITS)) - SUB;
+        return SUB + (exp - SUB_BITS) * SUB + sub;
+    }
+
+    /** Dolní hranice bucketu v µs. */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB) return bucket;
+        int i = bucket - SUB;
+        int shift = i / SUB;
+        return (long) (SUB + i % SUB) << shift;
+    }
+
+    /** Šířka bucketu v µs. */
+    static long width(int bucket) {
+        return bucket < SUB ? 1L : 1L << ((bucket - SUB) / SUB);
+    }
+
+    private static final class Stat {
+        final LongAdder lookups = new LongAdder();
+        final LongAdder hits = new LongAdder();
+        final LongAdder evals = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos) {
+            long n = Math.max(0L, nanos);
+            evals.increment();
+            totalNanos.add(n);
+            maxNanos.accumulateAndGet(n, Math::max);
+            buckets.incrementAndGet(bucketOf(n / 1000L));
+        }
+
+        Row row(String token) {
+            long max = maxNanos.get() / 1000L;
+            long[] b = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) { b[i] = buckets.get(i); count += b[i]; }
+            return new Row(token, lookups.sum(), hits.sum(), evals.sum(),
+                    totalNanos.sum() / 1000L,
+                    percentile(b, count, 0.50, max), percentile(b, count, 0.95, max), percentile(b, count, 0.99, max),
+                    max);
+        }
+
+    }
+
+    /**
+     * Kvantil v µs: lineární interpolace uvnitř bucketu, do kterého padne (vzorky v bucketu bereme
+     * rovnoměrně rozložené); nikdy nad naměřeným maximem.
+     */
+    static long percentile(long[] b, long count, double q, long max) {
+        if (count == 0) return 0L;
+        long rank = Math.max(1L, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < b.length; i++) {
+            if (b[i] == 0) continue;
+            if (seen + b[i] >= rank) {
+                if (i == b.length - 1) return max; // otevřený poslední bucket → jediný známý bod je max
+                long value = lowerBound(i) + width(i) * (rank - seen) / b[i];
+                return Math.min(max, value);
+            }
+            seen += b[i];
+        }
+        return max;
+    }
+
+    /** Snímek jednoho tokenu; časy v µs. */
+    public record Row(String token, long lookups, long hits, long evals, long totalMicros,
+                      long p50, long p95, long p99, long max) {
+        public double hitRatio() {
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        /** Průměrná doba jednoho vyhodnocení (µs; 0 = zatím neměřeno). */
+        public long avgMicros() {
+            return evals == 0 ? 0L : totalMicros / evals;
+        }
+    }
+}
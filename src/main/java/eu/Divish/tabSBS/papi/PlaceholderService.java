@@ -0,0 +1,573 @@
+package eu.Divish.tabSBS.papi;
+
+import eu.Divish.tabSBS.util.AliasTable;
+import eu.Divish.tabSBS.util.TextTemplate;
+import me.clip.placeholderapi.PlaceholderAPI;
+import me.clip.placeholderapi.events.ExpansionRegisterEvent;
+import me.clip.placeholderapi.events.ExpansionsLoadedEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Jediné místo, kde se volá PlaceholderAPI pro render (tablist, scoreboard, overlay, sorting, nametagy).
+ * - Text se rozloží na jednotlivé %tokeny% a každý se vyhodnotí zvlášť.
+ * - Memo per (hráč, token): v rámci jednoho ticku se stejný token vyhodnotí max 1× (coalescing
+ *   napříč moduly), mezi ticky drží hodnotu po dobu svého intervalu (placeholders.refresh_intervals,
+ *   per placeholder, jinak "default").
+ * - Každá hodnota nese verzi, která se zvedne jen při skutečné změně → {@link #version(Player, TextTemplate)}
+ *   řekne volajícímu, zda se od minulého renderu změnil některý vstup řádku.
+ * - Globální expanze (placeholders.global_expansions, např. server_*) mají jedno memo pro všechny hráče →
+ *   %server_online% se vyhodnotí 1× za refresh, ne 1× na hráče.
+ * - Dostupnost PAPI se zjišťuje 1× za tick, ne při každém volání.
+ * - Negativní cache: token, který PAPI vrátí beze změny a jehož expanze není registrovaná, se dál
+ *   nevyhodnocuje (vrací se doslova). Zahodí se při registraci expanze, po načtení expanzí
+ *   a po /papi reload z auto-installeru ({@link #clear()}).
+ * - %animation:jmeno% bere aktuální frame z {@link AnimationService} (funguje i bez PlaceholderAPI, bez intervalu);
+ *   verze se zvedne jen při posunu framu → přerenderují se jen řádky s touto animací.
+ * - Aliasy (placeholders.aliases, např. %online% → %server_online%) jsou jedna {@link AliasTable}
+ *   pro celý plugin; šablony je přepíšou už při kompilaci.
+ * - Expanze označené jako thread-safe (placeholders.async_expansions, např. SQL ekonomika) se obnovují
+ *   na malém async poolu; render mezitím používá poslední známou hodnotu a nová se projeví (nová verze),
+ *   jakmile dorazí. Ostatní expanze se dál vyhodnocují na ticku.
+ * - Při odchodu hráče se jeho memo zahodí (vlastní quit listener).
+ * - Každý dotaz a každé vyhodnocení se měří v {@link PlaceholderProfiler} (/tabsbs papi profile).
+ * - Adaptivní interval (placeholders.adaptive): token, jehož vyhodnocení na ticku stojí víc než budget_ms,
+ *   dostane delší interval (2× za každé překročení, min_ms..max_ms); když zlevní pod polovinu budgetu,
+ *   interval se zase zkracuje zpět k nastavené hodnotě.
+ *
+ * Validace a /tabsbs papi test (PlaceholderValidator, PapiExpansionAutoInstaller) jdou dál napřímo –
+ * chtějí vždy čerstvý výsledek.
+ */
+public final class PlaceholderService implements Listener {
+
+    private final Plugin plugin;
+
+    private static final int DEFAULT_INTERVAL_MS = 1000;
+
+    // token → interval v tickách; ostatní tokeny defaultTicks
+    private volatile Map<String, Integer> intervalTicks = Map.of();
+    private volatile int defaultTicks = 20;
+
+    // NOVĚ: adaptivní interval podle ceny vyhodnocení (placeholders.adaptive)
+    private volatile boolean adaptiveEnabled = false;
+    private volatile long budgetNanos = 2_000_000L;
+    private volatile int adaptiveMinTicks = 20;
+    private volatile int adaptiveMaxTicks = 600;
+    // token → vyhlazená cena + aktuální (natažený) interval; jen tokeny vyhodnocované na ticku
+    private final Map<String, Adaptive> adaptive = new ConcurrentHashMap<>();
+
+    // monotónní čítač verzí hodnot (nová verze jen při změně hodnoty)
+    private final AtomicLong versions = new AtomicLong();
+
+    private static final List<String> DEFAULT_GLOBAL = List.of("server", "bungee");
+
+    private volatile Set<String> globalExpansions = Set.copyOf(DEFAULT_GLOBAL);
+
+    // výchozí aliasy, když v configu chybí placeholders.aliases
+    private static final Map<String, String> DEFAULT_ALIASES = defaultAliases();
+
+    private volatile AliasTable aliases = AliasTable.EMPTY;
+
+    // NOVĚ: thread-safe expanze → obnova mimo tick (placeholders.async_expansions)
+    private static final int ASYNC_QUEUE = 512;
+    /** Verze mema, které u async tokenu jen čeká na první hodnotu z poolu (skutečné verze začínají od 1). */
+    private static final long PENDING = 0L;
+    private volatile Set<String> asyncExpansions = Set.of();
+    private volatile ThreadPoolExecutor asyncPool = null;
+    private int asyncThreads = 0;
+    // klíče (hráč|token), které už čekají ve frontě → stejný dotaz se nezařadí 2×
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final PlaceholderProfiler profiler = new PlaceholderProfiler();
+
+    // NOVĚ: pojmenované animace (%animation:jmeno%); null = animace vypnuté
+    private volatile AnimationService animations = null;
+
+    // NOVĚ: tokeny chybějících expanzí (negativní cache) → PAPI se pro ně nevolá
+    private final Set<String> unresolved = ConcurrentHashMap.newKeySet();
+
+    // UUID → token → poslední hodnota
+    private final Map<UUID, Map<String, Memo>> memo = new ConcurrentHashMap<>();
+    // token → poslední hodnota (globální expanze, sdílené napříč hráči)
+    private final Map<String, Memo> globalMemo = new ConcurrentHashMap<>();
+
+    // PAPI dostupnost (cache na 1 tick)
+    private volatile int papiCheckedTick = Integer.MIN_VALUE;
+    private volatile boolean papiEnabled = false;
+
+    public PlaceholderService(Plugin plugin) {
+        this.plugin = plugin;
+        reload();
+    }
+
+    /** Načte placeholders.* z configu a zahodí memo (volá se i z reloadAll). */
+    public void reload() {
+        loadIntervals();
+        loadAdaptive();
+        this.globalExpansions = globalExpansions(plugin);
+        this.aliases = aliases(plugin);
+        loadAsync();
+        memo.clear();
+        globalMemo.clear();
+        papiCheckedTick = Integer.MIN_VALUE;
+    }
+
+    // ===== API =====
+
+    /**
+     * Identifikátory expanzí s hodnotou společnou pro všechny hráče (lowercase).
+     * Statické, aby si je configy mohly přečíst při kompilaci šablon.
+     */
+    public static Set<String> globalExpansions(Plugin plugin) {
+        List<String> raw = plugin.getConfig().isList("placeholders.global_expansions")
+                ? plugin.getConfig().getStringList("placeholders.global_expansions")
+                : DEFAULT_GLOBAL;
+        Set<String> out = new HashSet<>();
+        for (String s : raw) {
+            if (s == null || s.isBlank()) continue;
+            String id = s.trim().toLowerCase(Locale.ROOT);
+            if (id.startsWith("%")) id = id.substring(1);
+            if (id.endsWith("_")) id = id.substring(0, id.length() - 1);
+            if (!id.isEmpty()) out.add(id);
+        }
+        return Collections.unmodifiableSet(out);
+    }
+
+    /**
+     * Aliasy z placeholders.aliases ("%zkratka%": "%reálný_placeholder%"), zkompilované do trie.
+     * Chybí-li sekce, platí výchozí (%online%, %exp%, %money%, %kills%, %deaths%).
+     * Statické, aby si je configy mohly přečíst při kompilaci šablon.
+     */
+    public static AliasTable aliases(Plugin plugin) {
+        ConfigurationSection sec = plugin.getConfig().getConfigurationSection("placeholders.aliases");
+        if (sec == null) return AliasTable.of(DEFAULT_ALIASES);
+        Map<String, String> map = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e : sec.getValues(false).entrySet()) {
+            if (e.getValue() == null) continue;
+            String value = String.valueOf(e.getValue()).trim();
+            if (!e.getKey().isBlank() && !value.isEmpty()) map.put(e.getKey().trim(), value);
+        }
+        return AliasTable.of(map);
+    }
+
+    /** Aktuální aliasy (načtené při reloadu). */
+    public AliasTable aliases() {
+        return aliases;
+    }
+
+    /** Je token z globální expanze (stejná hodnota pro všechny hráče)? */
+    public boolean isGlobal(String token) {
+        return TextTemplate.isAnimationToken(token) || globalExpansions.contains(TextTemplate.identifierOf(token));
+    }
+
+    /** Zdroj framů pro %animation:jmeno%. */
+    public void setAnimations(AnimationService animations) {
+        this.animations = animations;
+    }
+
+    public AnimationService animations() {
+        return animations;
+    }
+
+    /** Aktuální tick serveru (pro per-tick cache volajících). */
+    public int currentTick() {
+        return tick();
+    }
+
+    /** Je PlaceholderAPI zapnuté? (max 1 dotaz na PluginManager za tick) */
+    public boolean available() {
+        int now = tick();
+        if (papiCheckedTick != now) {
+            papiEnabled = Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI");
+            papiCheckedTick = now;
+        }
+        return papiEnabled;
+    }
+
+    /**
+     * Dosadí všechny %tokeny% v textu. Literály se nemění; nevyřešený token zůstane doslova
+     * (stejně jako u PlaceholderAPI.setPlaceholders).
+     */
+    public String apply(Player p, String text) {
+        if (text == null || text.isEmpty()) return "";
+        if (p == null || text.indexOf('%') < 0) return text;
+        if (!available() && text.indexOf(TextTemplate.ANIMATION_PREFIX) < 0) return text;
+
+        StringBuilder out = null;
+        int last = 0;
+        int i = text.indexOf('%');
+        while (i >= 0) {
+            int end = text.indexOf('%', i + 1);
+            if (end < 0) break;
+            if (!TextTemplate.isToken(text, i + 1, end)) {
+                // "50% sleva %x%" → první '%' je literál, pokračuj od druhého
+                i = end;
+                continue;
+            }
+            if (out == null) out = new StringBuilder(text.length() + 16);
+            out.append(text, last, i).append(resolve(p, text.substring(i, end + 1)));
+            last = end + 1;
+            i = text.indexOf('%', last);
+        }
+        if (out == null) return text;
+        return out.append(text, last, text.length()).toString();
+    }
+
+    /** Předkompilovaný text – dosadí jen sloty; statický text se vrací beze změny. */
+    public String render(Player p, TextTemplate t) {
+        if (t == null) return "";
+        if (t.isStatic() || p == null) return t.source();
+        if (!available() && !hasAnimations(t)) return t.source();
+        return t.render(token -> resolve(p, token));
+    }
+
+    /** Vyhodnotí jeden token ve tvaru %identifier_params% (memo per hráč + token). */
+    public String resolve(Player p, String token) {
+        if (token == null || token.isEmpty()) return "";
+        if (p == null || !resolvable(token)) return token;
+        return lookup(p, token).value();
+    }
+
+    /**
+     * Verze vstupů šablony pro hráče = max verze jejích slotů (vyhodnotí, co je po intervalu).
+     * Stejné číslo jako minule → žádný vstup se nezměnil a řádek není třeba znovu renderovat.
+     * Statická šablona má vždy 0; bez PAPI se počítají jen animace.
+     */
+    public long version(Player p, TextTemplate t) {
+        if (t == null || t.isStatic() || p == null) return 0L;
+        long v = 0L;
+        for (String token : t.tokens()) {
+            if (resolvable(token)) v = Math.max(v, lookup(p, token).version());
+        }
+        return v;
+    }
+
+    /** Měření ceny placeholderů (počty, hit ratio, latence). */
+    public PlaceholderProfiler profiler() {
+        return profiler;
+    }
+
+    /** Interval obnovy tokenu v tickách. */
+    public int intervalTicks(String token) {
+        if (adaptiveEnabled) {
+            Adaptive a = adaptive.get(token);
+            if (a != null) return a.ticks;
+        }
+        return baseTicks(token);
+    }
+
+    /** Interval z configu (bez adaptace). */
+    private int baseTicks(String token) {
+        Integer t = intervalTicks.get(token);
+        return t != null ? t : defaultTicks;
+    }
+
+    /** Zahodí memo hráče (quit). */
+    public void forget(UUID id) {
+        if (id != null) memo.remove(id);
+    }
+
+    /** Ukončí async pool (onDisable); rozpracované dotazy se zahodí. */
+    public void shutdown() {
+        ThreadPoolExecutor pool = this.asyncPool;
+        this.asyncPool = null;
+        this.asyncThreads = 0;
+        if (pool != null) pool.shutdownNow();
+        inFlight.clear();
+    }
+
+    /**
+     * Zapamatuje si nevyřešený token (např. z PlaceholderValidatoru) – jen pokud jeho expanze
+     * opravdu není registrovaná; jinak může jít o hodnotu, která se jen pro někoho nevyplnila.
+     * @return true, pokud se token dostal do negativní cache
+     */
+    public boolean markUnresolved(String token) {
+        if (token == null || !token.startsWith("%") || expansionRegistered(token)) return false;
+        unresolved.add(token);
+        return true;
+    }
+
+    /** Počet tokenů v negativní cache. */
+    public int unresolvedCount() {
+        return unresolved.size();
+    }
+
+    /** Zahodí celé memo i negativní cache (např. po /papi reload). */
+    public void clear() {
+        memo.clear();
+        globalMemo.clear();
+        unresolved.clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent e) {
+        forget(e.getPlayer().getUniqueId());
+    }
+
+    /** Nová expanze → její tokeny už nemusí být nevyřešené. */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onExpansionRegister(ExpansionRegisterEvent e) {
+        String id;
+        try { id = e.getExpansion().getIdentifier().toLowerCase(Locale.ROOT); }
+        catch (Throwable t) { unresolved.clear(); return; }
+        unresolved.removeIf(token -> TextTemplate.identifierOf(token).equals(id));
+    }
+
+    /** PAPI (znovu)načetlo expanze (start, /papi reload) → negativní cache neplatí. */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onExpansionsLoaded(ExpansionsLoadedEvent e) {
+        unresolved.clear();
+    }
+
+    // ===== interní =====
+
+    /** Animace jdou i bez PlaceholderAPI (framy dodává AnimationService), ostatní tokeny jen s ním. */
+    private boolean resolvable(String token) {
+        return (animations != null && TextTemplate.isAnimationToken(token)) || available();
+    }
+
+    private boolean hasAnimations(TextTemplate t) {
+        if (animations == null) return false;
+        for (String token : t.tokens()) if (TextTemplate.isAnimationToken(token)) return true;
+        return false;
+    }
+
+    private Memo lookup(Player p, String token) {
+        int now = tick();
+        AnimationService anim = this.animations;
+        if (anim != null && TextTemplate.isAnimationToken(token)) return animationFrame(anim, token, now);
+
+        Map<String, Memo> mine = isGlobal(token)
+                ? globalMemo
+                : memo.computeIfAbsent(p.getUniqueId(), k -> new ConcurrentHashMap<>());
+        Memo m = mine.get(token);
+        if (m != null && now - m.tick() < intervalTicks(token) && now >= m.tick()) {
+            profiler.recordHit(token);
+            return m;
+        }
+
+        // chybějící expanze → bez volání PAPI (ani async), token zůstane doslova (verze se nemění)
+        if (unresolved.contains(token)) return store(mine, token, token, now);
+
+        ThreadPoolExecutor pool = this.asyncPool;
+        if (pool != null && asyncExpansions.contains(TextTemplate.identifierOf(token))) {
+            // pool vrátil token doslova → registraci expanze ověř až tady na ticku, ne z vlákna poolu
+            if (m != null && m.version() != PENDING && m.value().equals(token) && markUnresolved(token)) return m;
+            // stará hodnota zůstává, dokud nedorazí nová; do první hodnoty se ukazuje token doslova
+            refreshAsync(pool, p, token, mine);
+            profiler.recordHit(token);
+            if (m != null) return m;
+            Memo pending = new Memo(token, now, PENDING);
+            Memo raced = mine.putIfAbsent(token, pending);
+            return raced != null ? raced : pending;
+        }
+
+        return store(mine, token, evaluate(p, token, true), now);
+    }
+
+    /**
+     * @param onTick vyhodnocuje se na ticku → cena se započítá do adaptivního intervalu a nevyřešený token
+     *               se rovnou ověří pro negativní cache (z poolu to dělá až další lookup na ticku)
+     */
+    private String evaluate(Player p, String token, boolean onTick) {
+        String value;
+        long start = System.nanoTime();
+        try {
+            value = PlaceholderAPI.setPlaceholders(p, token);
+        } catch (Throwable t) {
+            value = token;
+        }
+        long took = System.nanoTime() - start;
+        profiler.recordEval(token, took);
+        if (onTick && adaptiveEnabled) adapt(token, took);
+        if (onTick && token.equals(value)) markUnresolved(token);
+        return value != null ? value : "";
+    }
+
+    private static boolean expansionRegistered(String token) {
+        String id = TextTemplate.identifierOf(token);
+        if (id.isEmpty()) return false;
+        try { return PlaceholderAPI.isRegistered(id); }
+        catch (Throwable t) { return true; } // neumíme ověřit → radši necachovat
+    }
+
+    /**
+     * Vyhladí cenu (EWMA) a upraví interval: nad budgetem 2× delší (aspoň min, max max),
+     * pod polovinou budgetu 2× kratší, ale ne pod interval z configu.
+     */
+    private void adapt(String token, long nanos) {
+        Adaptive a = adaptive.get(token);
+        if (a == null && nanos <= budgetNanos) return; // levný token nemá záznam vůbec
+        int base = baseTicks(token);
+        if (a == null) a = adaptive.computeIfAbsent(token, k -> new Adaptive(nanos, base));
+        synchronized (a) {
+            a.ewmaNanos = (long) (a.ewmaNanos * 0.7 + nanos * 0.3);
+            if (a.ewmaNanos > budgetNanos) {
+                a.ticks = Math.min(adaptiveMaxTicks, Math.max(adaptiveMinTicks, a.ticks * 2));
+            } else if (a.ewmaNanos < budgetNanos / 2 && a.ticks > base) {
+                a.ticks = Math.max(base, a.ticks / 2);
+            }
+            if (a.ticks <= base && a.ewmaNanos < budgetNanos / 2) {
+                // zase levný a zpět na configu → nedrž zbytečně záznam
+                adaptive.remove(token, a);
+            }
+        }
+    }
+
+    /** placeholders.adaptive: enabled, budget_ms, min_ms, max_ms. */
+    private void loadAdaptive() {
+        ConfigurationSection sec = plugin.getConfig().getConfigurationSection("placeholders.adaptive");
+        boolean on = sec != null && sec.getBoolean("enabled", true);
+        double budgetMs = sec != null ? sec.getDouble("budget_ms", 2.0) : 2.0;
+        int minMs = sec != null ? sec.getInt("min_ms", 1000) : 1000;
+        int maxMs = sec != null ? sec.getInt("max_ms", 30000) : 30000;
+        this.budgetNanos = Math.max(50_000L, (long) (budgetMs * 1_000_000L));
+        this.adaptiveMinTicks = msToTicks(minMs);
+        this.adaptiveMaxTicks = Math.max(adaptiveMinTicks, msToTicks(maxMs));
+        this.adaptiveEnabled = on;
+        adaptive.clear();
+    }
+
+    /** Aktuální frame animace (sdílené memo; stejný frame = stejná verze). Neznámá animace zůstane doslova. */
+    private Memo animationFrame(AnimationService anim, String token, int now) {
+        String frame = anim.frame(AnimationService.nameOf(token));
+        String value = frame != null ? frame : token;
+        Memo m = globalMemo.get(token);
+        if (m != null && m.value().equals(value)) return m;
+        return store(globalMemo, token, value, now);
+    }
+
+    /** Uloží hodnotu; verze se zvedne jen při změně (a vždy u čekajícího mema, ať už nečeká). */
+    private Memo store(Map<String, Memo> mine, String token, String value, int now) {
+        Memo m = mine.get(token);
+        long version = (m != null && m.version() != PENDING && m.value().equals(value))
+                ? m.version() : versions.incrementAndGet();
+        Memo fresh = new Memo(value, now, version);
+        mine.put(token, fresh);
+        return fresh;
+    }
+
+    private void refreshAsync(ThreadPoolExecutor pool, Player p, String token, Map<String, Memo> mine) {
+        boolean global = (mine == globalMemo);
+        String key = (global ? "*" : p.getUniqueId().toString()) + '|' + token;
+        if (!inFlight.add(key)) return;
+        try {
+            pool.execute(() -> {
+                try {
+                    if (!p.isOnline()) return;
+                    String value = evaluate(p, token, false);
+                    // hráč mezitím odešel / reload zahodil memo → výsledek nikam neukládej
+                    if (global || memo.get(p.getUniqueId()) == mine) store(mine, token, value, tick());
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException full) {
+            // fronta plná (nebo pool vypnutý) → zkusí se při dalším renderu
+            inFlight.remove(key);
+        }
+    }
+
+    /** placeholders.async_expansions + async_threads; pool se vytvoří jen když je co obsluhovat. */
+    private void loadAsync() {
+        Set<String> ids = new HashSet<>();
+        for (String s : plugin.getConfig().getStringList("placeholders.async_expansions")) {
+            if (s == null || s.isBlank()) continue;
+            String id = s.trim().toLowerCase(Locale.ROOT);
+            if (id.startsWith("%")) id = id.substring(1);
+            if (id.endsWith("_")) id = id.substring(0, id.length() - 1);
+            if (!id.isEmpty()) ids.add(id);
+        }
+        int threads = Math.max(1, Math.min(8, plugin.getConfig().getInt("placeholders.async_threads", 2)));
+
+        if (ids.isEmpty()) {
+            shutdown();
+        } else if (asyncPool == null || threads != asyncThreads) {
+            shutdown();
+            AtomicInteger n = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(ASYNC_QUEUE), r -> {
+                        Thread t = new Thread(r, "TabSBS-PAPI-" + n.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.asyncPool = pool;
+            this.asyncThreads = threads;
+        }
+        this.asyncExpansions = Set.copyOf(ids);
+    }
+
+    /** placeholders.refresh_intervals: "default" + "%token%": ms (zaokrouhleno nahoru na ticky). */
+    private void loadIntervals() {
+        int def = DEFAULT_INTERVAL_MS;
+        Map<String, Integer> map = new HashMap<>();
+        ConfigurationSection sec = plugin.getConfig().getConfigurationSection("placeholders.refresh_intervals");
+        if (sec != null) {
+            // getValues místo getInt(key): klíč může obsahovat tečku (oddělovač cest)
+            for (Map.Entry<String, Object> e : sec.getValues(false).entrySet()) {
+                if (!(e.getValue() instanceof Number n)) continue;
+                String key = e.getKey().trim();
+                if (key.equalsIgnoreCase("default")) def = n.intValue();
+                else if (!key.isEmpty()) map.put(key, msToTicks(n.intValue()));
+            }
+        }
+        this.defaultTicks = msToTicks(def);
+        this.intervalTicks = Map.copyOf(map);
+    }
+
+    private static int msToTicks(int ms) {
+        int ticks = (int) Math.ceil(Math.max(0, ms) / 50.0);
+        return Math.max(1, Math.min(20 * 60 * 10, ticks));
+    }
+
+    private static int tick() {
+        try { return Bukkit.getCurrentTick(); }
+        catch (Throwable t) { return (int) (System.nanoTime() / 50_000_000L); }
+    }
+
+    private static Map<String, String> defaultAliases() {
+        Map<String, String> a = new LinkedHashMap<>();
+        a.put("%online%", "%server_online%");
+        a.put("%exp%", "%player_total_exp%");
+        a.put("%money%", "%vault_eco_balance_formatted%");
+        a.put("%kills%", "%statistic_player_kills%");
+        a.put("%deaths%", "%statistic_deaths%");
+        return Collections.unmodifiableMap(a);
+    }
+
+    private record Memo(String value, int tick, long version) {}
+
+    private static final class Adaptive {
+        long ewmaNanos;
+        volatile int ticks;
+
+        Adaptive(long ewmaNanos, int ticks) {
+            this.ewmaNanos = ewmaNanos;
+            this.ticks = ticks;
+        }
+    }
+}
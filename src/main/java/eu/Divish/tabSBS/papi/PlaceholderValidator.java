@@ -2,6 +2,7 @@ package eu.Divish.tabSBS.papi;
 
 import eu.Divish.tabSBS.lang.LangManager;
 import eu.Divish.tabSBS.scoreboard.ScoreboardConfig;
+import eu.Divish.tabSBS.util.AliasTable;
 import eu.Divish.tabSBS.util.Console;
 import me.clip.placeholderapi.PlaceholderAPI;
 import org.bukkit.entity.Player;
@@ -27,10 +28,17 @@ public final class PlaceholderValidator {
     private final Plugin plugin;
     private final LangManager lang;
     private final Console cons;
+    private final PlaceholderService placeholders; // může být null → aliasy se čtou přímo z configu
 
     public PlaceholderValidator(Plugin plugin, LangManager lang) {
+        this(plugin, lang, null);
+    }
+
+    /** @param placeholders nevyřešené tokeny z validace se předají do jeho negativní cache */
+    public PlaceholderValidator(Plugin plugin, LangManager lang, PlaceholderService placeholders) {
         this.plugin = plugin;
         this.lang = lang;
+        this.placeholders = placeholders;
         this.cons = new Console(plugin, false); // ⬅️ jen barevně, bez duplicit do loggeru
     }
 
@@ -56,7 +64,7 @@ public final class PlaceholderValidator {
 
         Map<String, String> unresolved = new LinkedHashMap<>();
         for (String token : all) {
-            String normalized = normalizeAliases(token); // aliasy stejně jako v ScoreboardManageru
+            String normalized = aliases().apply(token); // aliasy stejně jako při kompilaci šablon
             String after;
             try {
                 after = PlaceholderAPI.setPlaceholders(player, normalized);
@@ -66,6 +74,7 @@ public final class PlaceholderValidator {
             if (isPlaceholderFormat(after)) {
                 // reportuj původní token i výsledek (po aliasu)
                 unresolved.put(token, after);
+                if (placeholders != null && normalized.equals(after)) placeholders.markUnresolved(normalized);
             }
         }
 
@@ -110,21 +119,9 @@ public final class PlaceholderValidator {
         return PAPI_TOKEN.matcher(s).find();
     }
 
-    /**
-     * Aliasování krátkých placeholderů na reálné PAPI:
-     *  - %online%  -> %server_online%
-     *  - %exp%     -> %player_total_exp%
-     *  - %money%   -> %vault_eco_balance_formatted%
-     *  - %kills%   -> %statistic_player_kills%
-     *  - %deaths%  -> %statistic_deaths%
-     */
-    private static String normalizeAliases(String s) {
-        if (s == null) return "";
-        return s.replace("%online%", "%server_online%")
-                .replace("%exp%", "%player_total_exp%")
-                .replace("%money%", "%vault_eco_balance_formatted%")
-                .replace("%kills%", "%statistic_player_kills%")
-                .replace("%deaths%", "%statistic_deaths%");
+    /** Aktuální tabulka aliasů (po /tabsbs reload ta nová, stejná jako pro render). */
+    private AliasTable aliases() {
+        return placeholders != null ? placeholders.aliases() : PlaceholderService.aliases(plugin);
     }
 
     // Barevné logování do konzole
@@ -1,12 +1,18 @@
 package eu.Divish.tabSBS.scoreboard;
 
+import eu.Divish.tabSBS.papi.AnimationService;
+import eu.Divish.tabSBS.papi.PlaceholderService;
+import eu.Divish.tabSBS.util.AliasTable;
+import eu.Divish.tabSBS.util.TextTemplate;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.plugin.Plugin;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * Načítá a drží konfiguraci pro sekci: modules.scoreboard
@@ -22,6 +28,12 @@ public final class ScoreboardConfig {
     // ITEMS
     private final List<String> items;
 
+    // NOVĚ: předkompilované šablony (aliasy → literály + placeholder sloty)
+    private final TextTemplate titleTemplate;
+    private final List<TextTemplate> itemTemplates;
+    // NOVĚ: jména animací (%animation:x%) v title/řádcích → jen tyhle posuny spustí překreslení
+    private final Set<String> animationNames;
+
     // INTEGRACE
     private final boolean usePapi;
     private final boolean useVaultEco;
@@ -54,6 +66,16 @@ public final class ScoreboardConfig {
         List<String> it = root.getStringList("items");
         this.items = (it == null) ? Collections.emptyList() : it;
 
+        Set<String> globals = PlaceholderService.globalExpansions(plugin);
+        AliasTable aliases = PlaceholderService.aliases(plugin);
+        this.titleTemplate = TextTemplate.compile(titleRaw, aliases, globals);
+        List<TextTemplate> compiled = new ArrayList<>(Math.min(15, items.size()));
+        for (int i = 0; i < Math.min(15, items.size()); i++) compiled.add(TextTemplate.compile(items.get(i), aliases, globals));
+        this.itemTemplates = Collections.unmodifiableList(compiled);
+        Set<String> anim = AnimationService.namesIn(titleTemplate);
+        for (TextTemplate t : compiled) anim.addAll(AnimationService.namesIn(t));
+        this.animationNames = Collections.unmodifiableSet(anim);
+
         // --- INTEGRACE ---
         ConfigurationSection integ = root.getConfigurationSection("integrations");
         this.usePapi      = integ == null || integ.getBoolean("use_placeholderapi", true);
@@ -81,6 +103,10 @@ public final class ScoreboardConfig {
     public Duration updatePeriod() { return updatePeriod; }
 
     public List<String> items() { return items; }
+    public TextTemplate titleTemplate() { return titleTemplate; }
+    /** Max 15 řádků (limit sidebaru). */
+    public List<TextTemplate> itemTemplates() { return itemTemplates; }
+    public Set<String> animationNames() { return animationNames; }
 
     public boolean usePapi() { return usePapi; }
     public boolean useVaultEco() { return useVaultEco; }
@@ -1,14 +1,16 @@
 package eu.Divish.tabSBS.scoreboard;
 
+import eu.Divish.tabSBS.papi.PlaceholderService;
+import eu.Divish.tabSBS.util.TextTemplate;
+import eu.Divish.tabSBS.util.ComponentCache;
 import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
-import me.clip.placeholderapi.PlaceholderAPI;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scoreboard.DisplaySlot;
 import org.bukkit.scoreboard.Objective;
+import org.bukkit.scoreboard.Score;
 import org.bukkit.scoreboard.Scoreboard;
 
 import java.util.*;
@@ -20,7 +22,11 @@ import java.util.concurrent.ConcurrentHashMap;
  * Klíčové:
  *  - Čistí jen naše poslední řádky (lastEntries) → nepere se s overlayem.
  *  - Má potlačovač (suppressUntilMs): když běží overlay, neren­deruje statickou tabulku.
- *  - Aliasování děláme PŘED voláním PAPI (normalizeAliases → applyPapi).
+ *  - Title a řádky jsou předkompilované šablony (ScoreboardConfig): aliasy jsou přepsané už při načtení,
+ *    render dosadí jen placeholder sloty; řádky bez placeholderů se převedou 1× na config a pak se jen znovu použijí.
+ *  - Title/řádky jen s globálními placeholdery (%server_online% …) se renderují 1× za tick a sdílí se všem hráčům.
+ *  - Per-hráč řádek se znovu renderuje jen když se změnil některý jeho placeholder (verze z PlaceholderService).
+ *  - Dirty tracking: title, display slot i skóre se posílají jen pro to, co se proti minulému zápisu změnilo.
  *
  * Úpravy:
  *  - přidány helpery applyOnce(Player) a clearFor(Player) pro jednotné volání z reloadAll()
@@ -28,25 +34,33 @@ import java.util.concurrent.ConcurrentHashMap;
 public final class ScoreboardManager {
 
     private final Plugin plugin;
+    private final PlaceholderService placeholders;
     private ScoreboardConfig cfg;
 
     // Per-player vlastní board
     private final Map<UUID, Scoreboard> boards = new ConcurrentHashMap<>();
     // Per-player poslední NAŠE zapsané řádky (abychom je mohli bezpečně smazat)
     private final Map<UUID, List<String>> lastEntries = new ConcurrentHashMap<>();
+    // Per-player poslední odeslaný title (displayName jen při změně)
+    private final Map<UUID, Component> lastTitles = new ConcurrentHashMap<>();
     // Per-player: dokdy potlačit render statické tabulky (kvůli overlayi)
     private final Map<UUID, Long> suppressUntilMs = new ConcurrentHashMap<>();
 
+    // NOVĚ: statický title/řádky vyrenderované 1× pro aktuální config
+    private volatile Prepared prepared = null;
+    // NOVĚ: globální title/řádky pro aktuální tick (sdílené všemi hráči)
+    private volatile Shared shared = null;
+    // NOVĚ: poslední vyrenderované per-hráč řádky + verze vstupů; weak → po odchodu hráče zmizí samo
+    private final Map<Player, LineCache> lineCache = Collections.synchronizedMap(new WeakHashMap<>());
+
     // plánovač
     private ScheduledTask updateTask = null;
     private boolean running = false;
 
-    private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.builder()
-            .character('&').hexColors().useUnusualXRepeatedCharacterHexFormat().build();
-
-    public ScoreboardManager(Plugin plugin, ScoreboardConfig cfg) {
+    public ScoreboardManager(Plugin plugin, ScoreboardConfig cfg, PlaceholderService placeholders) {
         this.plugin = plugin;
         this.cfg = cfg;
+        this.placeholders = placeholders;
     }
 
     // ===== lifecycle =====
@@ -94,6 +108,8 @@ public final class ScoreboardManager {
         p.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
         boards.remove(p.getUniqueId());
         lastEntries.remove(p.getUniqueId());
+        lastTitles.remove(p.getUniqueId());
+        lineCache.remove(p);
         suppressUntilMs.remove(p.getUniqueId());
     }
 
@@ -111,6 +127,13 @@ public final class ScoreboardManager {
     /** Vyčistí stav pro hráče (bez ohledu na config). */
     public void clearFor(Player p) { hide(p); }
 
+    /** Posunuly se animace → přerenderuj jen když je title/řádky používají (diff pošle jen změněné řádky). */
+    public void onAnimationsAdvanced(Set<String> names) {
+        if (!running || !cfg.enabled() || !cfg.usePapi()) return;
+        if (Collections.disjoint(cfg.animationNames(), names)) return;
+        updateAll();
+    }
+
     /** Aktualizuje všechny online hráče. */
     public void updateAll() {
         if (!cfg.enabled()) return;
@@ -128,46 +151,79 @@ public final class ScoreboardManager {
 
         Scoreboard sb = boards.computeIfAbsent(p.getUniqueId(), id -> Bukkit.getScoreboardManager().getNewScoreboard());
 
-        // Title (správné pořadí: aliasy → PAPI → &barvy)
-        String titleRaw = applyPapi(p, normalizeAliases(cfg.titleRaw()));
-        Component titleComp = LEGACY.deserialize(titleRaw);
+        Prepared pr = prepared();
+
+        // Title (šablona už má přepsané aliasy → PAPI sloty → &barvy)
+        TextTemplate titleT = pr.cfg().titleTemplate();
+        String titleRaw;
+        Component titleComp;
+        if (pr.title() != null) {
+            titleRaw = titleT.source();
+            titleComp = pr.title();
+        } else if (titleT.isGlobal()) {
+            Shared sh = shared(p, pr);
+            titleRaw = sh.titleRaw();
+            titleComp = sh.title();
+        } else {
+            LineCache lc = lineCache(p, pr);
+            long v = placeholders.version(p, titleT);
+            if (lc.title == null || lc.titleVersion != v) {
+                lc.titleRaw = render(p, titleT);
+                lc.title = ComponentCache.deserialize(lc.titleRaw);
+                lc.titleVersion = v;
+            }
+            titleRaw = lc.titleRaw;
+            titleComp = lc.title;
+        }
 
+        UUID id = p.getUniqueId();
         Objective obj = sb.getObjective("tabsbs");
+        boolean created = false;
         if (obj == null) {
             try {
                 obj = sb.registerNewObjective("tabsbs", "dummy", titleComp);
             } catch (Throwable t) {
                 obj = sb.registerNewObjective("tabsbs", "dummy", ChatColorLike.translateAmpersandColorCodes(titleRaw));
             }
-        } else {
+            created = true;
+        } else if (!titleComp.equals(lastTitles.get(id))) {
+            // NOVĚ: title posíláme jen při změně
             try { obj.displayName(titleComp); }
             catch (Throwable t) { obj.setDisplayName(ChatColorLike.translateAmpersandColorCodes(titleRaw)); }
         }
-        // VŽDY přepni SIDEBAR na statický objektiv (vrací nás zpět ze všech overlayů)
-        obj.setDisplaySlot(DisplaySlot.SIDEBAR);
-
-        // Smaž POUZE naše staré řádky pro tohoto hráče
-        List<String> old = lastEntries.get(p.getUniqueId());
-        if (old != null) for (String e : old) sb.resetScores(e);
+        lastTitles.put(id, titleComp);
+        // VŽDY vrať SIDEBAR na statický objektiv (vrací nás zpět ze všech overlayů) – paket jen když tam není
+        if (created || obj.getDisplaySlot() != DisplaySlot.SIDEBAR) obj.setDisplaySlot(DisplaySlot.SIDEBAR);
 
-        // Zapiš nové řádky (max 15)
-        List<String> rawLines = cfg.items();
-        int n = Math.min(15, rawLines.size());
-        int score = n;
+        // Nové řádky (max 15)
+        List<TextTemplate> lines = pr.cfg().itemTemplates();
+        int n = lines.size();
 
         List<String> myNewEntries = new ArrayList<>(n);
         for (int i = 0; i < n; i++) {
-            // aliasy → PAPI → & barvy
-            String prepared = applyPapi(p, normalizeAliases(rawLines.get(i)));
-            String legacy = ChatColorLike.translateAmpersandColorCodes(prepared);
-
-            // unikátnost entry (scoreboard vyžaduje unikátní texty)
-            legacy = ensureUnique(legacy, i);
-
-            obj.getScore(legacy).setScore(score--);
+            // statický řádek je hotový z prepared(); jinak PAPI sloty → & barvy → unikátnost
+            String legacy = pr.lines()[i];
+            if (legacy == null && lines.get(i).isGlobal()) legacy = shared(p, pr).lines()[i];
+            if (legacy == null) legacy = dynamicLine(p, pr, lines.get(i), i);
             myNewEntries.add(legacy);
         }
-        lastEntries.put(p.getUniqueId(), myNewEntries);
+
+        // NOVĚ: diff proti minulému zápisu – reset jen zmizelých řádků, setScore jen změněných
+        List<String> old = created ? null : lastEntries.get(id);
+        boolean sameLayout = (old != null && old.size() == n);
+        if (old != null) {
+            Set<String> keep = new HashSet<>(myNewEntries);
+            for (String e : old) if (!keep.contains(e)) sb.resetScores(e);
+        }
+        for (int i = 0; i < n; i++) {
+            String e = myNewEntries.get(i);
+            Score score = obj.getScore(e);
+            // stejný text na stejném místě → nic neposílat; skóre ale mohl mezitím zresetovat někdo jiný
+            // (overlay, jiný plugin), proto se ověří proti skutečnému stavu boardu (lokální lookup, bez paketu)
+            if (sameLayout && e.equals(old.get(i)) && score.isScoreSet() && score.getScore() == n - i) continue;
+            score.setScore(n - i);
+        }
+        lastEntries.put(id, myNewEntries);
     }
 
     // ==== API pro overlay: potlač rendr statického boardu na X milisekund ====
@@ -182,31 +238,106 @@ public final class ScoreboardManager {
 
     // ===== pomocné =====
 
-    private String applyPapi(Player p, String text) {
-        if (text == null) return "";
-        if (cfg.usePapi() && Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) {
-            try {
-                return PlaceholderAPI.setPlaceholders(p, text);
-            } catch (Throwable ignored) {}
+    private String render(Player p, TextTemplate t) {
+        if (!cfg.usePapi()) return t.source();
+        return placeholders.render(p, t);
+    }
+
+    /** & barvy → § a unikátnost entry (scoreboard vyžaduje unikátní texty). */
+    private static String toEntry(String text, int index) {
+        return ensureUnique(ChatColorLike.translateAmpersandColorCodes(text), index);
+    }
+
+    /** Statické části aktuálního configu; při výměně configu se postaví znovu. */
+    private Prepared prepared() {
+        ScoreboardConfig c = this.cfg;
+        Prepared pr = this.prepared;
+        if (pr == null || pr.cfg() != c) {
+            pr = Prepared.of(c);
+            this.prepared = pr;
+        }
+        return pr;
+    }
+
+    /** Per-hráč řádek: render jen když se od minula změnila verze jeho vstupů. */
+    private String dynamicLine(Player p, Prepared pr, TextTemplate t, int i) {
+        LineCache lc = lineCache(p, pr);
+        long v = placeholders.version(p, t);
+        if (lc.entries[i] == null || lc.versions[i] != v) {
+            lc.entries[i] = toEntry(render(p, t), i);
+            lc.versions[i] = v;
+        }
+        return lc.entries[i];
+    }
+
+    private LineCache lineCache(Player p, Prepared pr) {
+        LineCache lc = lineCache.get(p);
+        if (lc == null || lc.cfg != pr.cfg()) {
+            lc = new LineCache(pr.cfg());
+            lineCache.put(p, lc);
+        }
+        return lc;
+    }
+
+    private static final class LineCache {
+        final ScoreboardConfig cfg;
+        final long[] versions;
+        final String[] entries;
+        long titleVersion = -1L;
+        String titleRaw;
+        Component title;
+
+        LineCache(ScoreboardConfig cfg) {
+            this.cfg = cfg;
+            this.versions = new long[cfg.itemTemplates().size()];
+            this.entries = new String[versions.length];
         }
-        return text;
     }
 
+    /** Globální title/řádky pro aktuální tick – vyrenderuje je první hráč v ticku, ostatní sdílí. */
+    private Shared shared(Player p, Prepared pr) {
+        int now = placeholders.currentTick();
+        Shared sh = this.shared;
+        if (sh != null && sh.tick() == now && sh.cfg() == pr.cfg()) return sh;
+
+        ScoreboardConfig c = pr.cfg();
+        String titleRaw = null;
+        Component title = null;
+        if (c.titleTemplate().isGlobal()) {
+            titleRaw = render(p, c.titleTemplate());
+            title = ComponentCache.deserialize(titleRaw);
+        }
+        List<TextTemplate> items = c.itemTemplates();
+        String[] lines = new String[items.size()];
+        for (int i = 0; i < lines.length; i++) {
+            if (pr.lines()[i] == null && items.get(i).isGlobal()) lines[i] = toEntry(render(p, items.get(i)), i);
+        }
+        sh = new Shared(now, c, titleRaw, title, lines);
+        this.shared = sh;
+        return sh;
+    }
+
+    private record Shared(int tick, ScoreboardConfig cfg, String titleRaw, Component title, String[] lines) {}
+
     /**
-     * Aliasování krátkých placeholderů na reálné PAPI:
-     *  - %online%  -> %server_online%
-     *  - %exp%     -> %player_total_exp%
-     *  - %money%   -> %vault_eco_balance_formatted%
-     *  - %kills%   -> %statistic_player_kills%
-     *  - %deaths%  -> %statistic_deaths%
+     * @param title hotový title, nebo null když obsahuje placeholdery
+     * @param lines hotová entry pro statické řádky; null = řádek se renderuje per hráč
      */
-    private static String normalizeAliases(String s) {
-        if (s == null) return "";
-        return s.replace("%online%", "%server_online%")
-                .replace("%exp%", "%player_total_exp%")
-                .replace("%money%", "%vault_eco_balance_formatted%")
-                .replace("%kills%", "%statistic_player_kills%")
-                .replace("%deaths%", "%statistic_deaths%");
+    private record Prepared(ScoreboardConfig cfg, Component title, String[] lines) {
+        static Prepared of(ScoreboardConfig c) {
+            // bez PAPI je výstup vždy text šablony → vše je statické
+            boolean papi = c.usePapi();
+            TextTemplate t = c.titleTemplate();
+            Component title = (!papi || t.isStatic()) ? ComponentCache.deserialize(t.source()) : null;
+
+            List<TextTemplate> items = c.itemTemplates();
+            String[] lines = new String[items.size()];
+            for (int i = 0; i < lines.length; i++) {
+                TextTemplate it = items.get(i);
+                if (!papi || it.isStatic()) lines[i] = toEntry(it.source(), i);
+            }
+            return new Prepared(c, title, lines);
+        }
     }
 
     private static String ensureUnique(String s, int salt) {
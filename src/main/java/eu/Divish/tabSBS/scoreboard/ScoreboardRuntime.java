@@ -1,5 +1,6 @@
 package eu.Divish.tabSBS.scoreboard;
 
+import eu.Divish.tabSBS.papi.PlaceholderService;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
@@ -19,17 +20,19 @@ import org.bukkit.plugin.Plugin;
 public final class ScoreboardRuntime {
 
     private final Plugin plugin;
+    private final PlaceholderService placeholders;
 
     private ScoreboardConfig config;
     private final ScoreboardManager manager;
     private TempBoardOverlay overlay; // ← už není final, aby šel re-instancovat po reloadu
 
-    public ScoreboardRuntime(Plugin plugin, ScoreboardConfig config) {
+    public ScoreboardRuntime(Plugin plugin, ScoreboardConfig config, PlaceholderService placeholders) {
         this.plugin = plugin;
         this.config = config;
+        this.placeholders = placeholders;
 
-        this.manager = new ScoreboardManager(plugin, config);
-        this.overlay = new TempBoardOverlay(plugin, config, manager);
+        this.manager = new ScoreboardManager(plugin, config, placeholders);
+        this.overlay = new TempBoardOverlay(plugin, config, manager, placeholders);
     }
 
     // ---------- lifecycle ----------
@@ -72,7 +75,7 @@ public final class ScoreboardRuntime {
         manager.applyNewConfig(newConfig);
 
         // 4) re-instancuj overlay, protože držel referenci na starý config
-        this.overlay = new TempBoardOverlay(plugin, newConfig, manager);
+        this.overlay = new TempBoardOverlay(plugin, newConfig, manager, placeholders);
 
         // 5) znovu spusť jen pokud je povoleno
         if (newConfig.enabled()) {
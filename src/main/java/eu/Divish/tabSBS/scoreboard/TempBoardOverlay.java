@@ -1,9 +1,9 @@
 package eu.Divish.tabSBS.scoreboard;
 
+import eu.Divish.tabSBS.papi.PlaceholderService;
+import eu.Divish.tabSBS.util.ComponentCache;
 import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
-import me.clip.placeholderapi.PlaceholderAPI;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
@@ -30,6 +30,7 @@ public final class TempBoardOverlay {
     private final Plugin plugin;
     private final ScoreboardConfig cfg;
     private final ScoreboardManager manager;
+    private final PlaceholderService placeholders;
 
     private ScheduledTask loopTask = null;
     private boolean running = false;
@@ -37,13 +38,11 @@ public final class TempBoardOverlay {
     // uchováváme si poslední overlay řádky pro každého hráče
     private final Map<UUID, List<String>> lastEntries = new HashMap<>();
 
-    private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.builder()
-            .character('&').hexColors().useUnusualXRepeatedCharacterHexFormat().build();
-
-    public TempBoardOverlay(Plugin plugin, ScoreboardConfig cfg, ScoreboardManager manager) {
+    public TempBoardOverlay(Plugin plugin, ScoreboardConfig cfg, ScoreboardManager manager, PlaceholderService placeholders) {
         this.plugin = plugin;
         this.cfg = cfg;
         this.manager = manager;
+        this.placeholders = placeholders;
     }
 
     /** Spustí cyklus SHOW/HIDE podle configu. */
@@ -106,7 +105,7 @@ public final class TempBoardOverlay {
         Scoreboard sb = viewer.getScoreboard();
 
         String titleRaw = cfg.tempTitleRaw();
-        Component titleComp = LEGACY.deserialize(titleRaw);
+        Component titleComp = ComponentCache.deserialize(titleRaw);
 
         Objective obj = sb.getObjective("tabsbs_temp");
         if (obj == null) {
@@ -123,7 +122,7 @@ public final class TempBoardOverlay {
 
         // Sestav TOP list
         String metricRaw = cfg.tempMetric();
-        String metric = normalizeAliases(metricRaw); // aliasy na reálné PAPI metriky
+        String metric = placeholders.aliases().apply(metricRaw); // aliasy na reálné PAPI metriky
         String valueColor = cfg.tempValueColorRaw();
         int topN = Math.min(15, Math.max(1, cfg.tempTopCount()));
 
@@ -178,11 +177,11 @@ public final class TempBoardOverlay {
 
     /** Přečte metrický placeholder. Respektuje cfg.usePapi() a dostupnost PAPI. */
     private double evalMetric(Player p, String placeholderWithPercents) {
-        if (!cfg.usePapi() || !Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) {
+        if (!cfg.usePapi() || !placeholders.available()) {
             return 0.0D;
         }
         try {
-            String out = PlaceholderAPI.setPlaceholders(p, placeholderWithPercents);
+            String out = placeholders.apply(p, placeholderWithPercents);
             return parseDoubleSafe(out);
         } catch (Throwable t) {
             return 0.0D;
@@ -207,16 +206,6 @@ public final class TempBoardOverlay {
 
     // ===== helpers =====
 
-    /** Aliasování zkratek na reálné PAPI placeholdery. */
-    private static String normalizeAliases(String s) {
-        if (s == null) return "";
-        return s.replace("%online%", "%server_online%")
-                .replace("%exp%", "%player_total_exp%")
-                .replace("%money%", "%vault_eco_balance_formatted%")
-                .replace("%kills%", "%statistic_player_kills%")
-                .replace("%deaths%", "%statistic_deaths%");
-    }
-
     private static long toTicksCeil(java.time.Duration d) {
         long ticks = (long) Math.ceil(d.toMillis() / 50.0);
         return Math.max(1L, ticks);
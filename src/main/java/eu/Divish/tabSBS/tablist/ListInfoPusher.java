@@ -0,0 +1,183 @@
+package eu.Divish.tabSBS.tablist;
+
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import io.papermc.paper.adventure.PaperAdventure;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.protocol.game.ClientboundPlayerInfoUpdatePacket;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.GameType;
+import org.bukkit.Bukkit;
+import org.bukkit.craftbukkit.entity.CraftPlayer;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dávkové player-info aktualizace pro TAB (UPDATE_LIST_ORDER, volitelně UPDATE_DISPLAY_NAME).
+ * - Posílá jen hráče, kterým se změnilo pořadí / jméno – 1 paket na viewera a cyklus.
+ * - Nový viewer (ještě nic nedostal) dostane 1× plný stav.
+ * - Žádné remove + ADD_PLAYER (skiny/profily) – klienti 1.21.2+ řadí přímo podle listOrder.
+ * - Stejné hodnoty se tiše (bez broadcastu) zapíšou i do ServerPlayer → když server pošle vlastní
+ *   ADD_PLAYER (showPlayer po hidePlayer, vanish pluginy), nese naše pořadí i jméno, ne 0 a holé jméno.
+ *
+ * Vyšší listOrder = výš v TABu, proto se hodnota počítá z řídkého klíče obráceně (viz {@link #orderFromKey}).
+ */
+final class ListInfoPusher {
+
+    private static final LegacyComponentSerializer SECTION = LegacyComponentSerializer.legacySection();
+
+    private final Map<UUID, Integer> sentOrder = new ConcurrentHashMap<>();
+    private final Map<UUID, String> sentName = new ConcurrentHashMap<>();
+    private final Set<UUID> viewers = ConcurrentHashMap.newKeySet();
+    /** Původní ServerPlayer.listName před naším prvním přepisem (null hodnota = vanilla jméno). */
+    private final Map<UUID, OriginalName> originalNames = new ConcurrentHashMap<>();
+
+    private record OriginalName(Component value) {}
+
+    /**
+     * @param targets hráči v TABu (jen povolení), v libovolném pořadí
+     * @param orders  UUID → listOrder
+     * @param names   UUID → §-legacy displayName; null = displayName neřešíme (jen pořadí)
+     */
+    void push(List<Player> targets, Map<UUID, Integer> orders, Map<UUID, String> names) {
+        boolean withNames = (names != null);
+        EnumSet<ClientboundPlayerInfoUpdatePacket.Action> actions = withNames
+                ? EnumSet.of(ClientboundPlayerInfoUpdatePacket.Action.UPDATE_DISPLAY_NAME,
+                             ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LIST_ORDER)
+                : EnumSet.of(ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LIST_ORDER);
+
+        List<Player> online = new ArrayList<>(Bukkit.getOnlinePlayers());
+        List<Player> fresh = new ArrayList<>();
+        for (Player v : online) if (!viewers.contains(v.getUniqueId())) fresh.add(v);
+
+        // změny proti poslednímu odeslanému stavu
+        List<ClientboundPlayerInfoUpdatePacket.Entry> changed = new ArrayList<>();
+        List<ClientboundPlayerInfoUpdatePacket.Entry> all = fresh.isEmpty() ? null : new ArrayList<>(targets.size());
+        for (Player p : targets) {
+            UUID id = p.getUniqueId();
+            Integer order = orders.get(id);
+            if (order == null) continue;
+            String name = withNames ? names.get(id) : null;
+
+            boolean dirty = !order.equals(sentOrder.get(id)) || (withNames && !Objects.equals(name, sentName.get(id)));
+            if (!dirty && all == null) continue;
+
+            ClientboundPlayerInfoUpdatePacket.Entry e = entry(p, order,
+                    name != null ? PaperAdventure.asVanilla(SECTION.deserialize(name)) : null);
+            if (dirty) {
+                changed.add(e);
+                syncServerSide(p, order, e.displayName());
+                sentOrder.put(id, order);
+                if (withNames) sentName.put(id, name);
+            }
+            if (all != null) all.add(e);
+        }
+
+        if (!changed.isEmpty()) {
+            ClientboundPlayerInfoUpdatePacket packet = new ClientboundPlayerInfoUpdatePacket(actions, changed);
+            for (Player v : online) if (viewers.contains(v.getUniqueId())) send(v, packet);
+        }
+        if (all != null && !all.isEmpty()) {
+            ClientboundPlayerInfoUpdatePacket packet = new ClientboundPlayerInfoUpdatePacket(actions, all);
+            for (Player v : fresh) send(v, packet);
+        }
+        for (Player v : fresh) viewers.add(v.getUniqueId());
+    }
+
+    /** Hráč odešel – zapomenout ho jako cíl i jako viewera. */
+    void forget(UUID id) {
+        sentOrder.remove(id);
+        sentName.remove(id);
+        viewers.remove(id);
+        originalNames.remove(id);
+    }
+
+    /** Hráč už v TABu neřídíme (např. zakázaný svět) – příště se pošle znovu celý. */
+    void forgetTarget(UUID id) {
+        sentOrder.remove(id);
+        sentName.remove(id);
+    }
+
+    void clear() {
+        sentOrder.clear();
+        sentName.clear();
+        viewers.clear();
+        originalNames.clear();
+    }
+
+    /**
+     * Vrátí klientům i ServerPlayer listOrder na 0 (vanilla) a listName na hodnotu před naším prvním
+     * zápisem – pro všechny, komu jsme je nastavili – a zapomene stav.
+     */
+    void reset() {
+        if (!sentOrder.isEmpty() || !originalNames.isEmpty()) {
+            List<ClientboundPlayerInfoUpdatePacket.Entry> entries = new ArrayList<>(sentOrder.size());
+            for (Player p : Bukkit.getOnlinePlayers()) {
+                UUID id = p.getUniqueId();
+                OriginalName original = originalNames.get(id);
+                if (!sentOrder.containsKey(id) && original == null) continue;
+                try {
+                    ServerPlayer h = ((CraftPlayer) p).getHandle();
+                    h.listOrder = 0;
+                    if (original != null) h.listName = original.value();
+                    // bez původního záznamu jsme jméno nepřepsali → pošle se aktuální serverové
+                    entries.add(entry(p, 0, h.listName));
+                } catch (Throwable ignored) {}
+            }
+            if (!entries.isEmpty()) {
+                ClientboundPlayerInfoUpdatePacket packet = new ClientboundPlayerInfoUpdatePacket(
+                        EnumSet.of(ClientboundPlayerInfoUpdatePacket.Action.UPDATE_DISPLAY_NAME,
+                                   ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LIST_ORDER), entries);
+                for (Player v : Bukkit.getOnlinePlayers()) if (viewers.contains(v.getUniqueId())) send(v, packet);
+            }
+        }
+        clear();
+    }
+
+    /**
+     * Řídký hex klíč (menší = výš) → listOrder (větší = výš).
+     * Prostor je nejvýš 16^{@link SortKeyAllocator#MAX_KEY_WIDTH} = 2^28, takže se vejde do intu beze změny.
+     */
+    static int orderFromKey(long key, long space) {
+        if (key < 0 || key >= space) return 0;
+        return (int) (space - 1 - key);
+    }
+
+    // ===== interní =====
+
+    private static ClientboundPlayerInfoUpdatePacket.Entry entry(Player p, int order, Component displayName) {
+        ServerPlayer h = ((CraftPlayer) p).getHandle();
+        // zapisují se jen pole akcí v paketu (displayName / listOrder), ostatní jsou jen výplň recordu
+        return new ClientboundPlayerInfoUpdatePacket.Entry(
+                h.getUUID(), h.getGameProfile(), true, 0, GameType.SURVIVAL,
+                displayName,
+                true, order, null
+        );
+    }
+
+    /**
+     * listOrder / listName přímo do ServerPlayer (jako CraftPlayer.setPlayerListOrder, ale bez paketu všem).
+     * Před prvním přepisem jména si zapamatuje původní, aby ho {@link #reset()} mohl vrátit.
+     */
+    private void syncServerSide(Player p, int order, Component displayName) {
+        try {
+            ServerPlayer h = ((CraftPlayer) p).getHandle();
+            h.listOrder = order;
+            if (displayName != null) {
+                originalNames.putIfAbsent(p.getUniqueId(), new OriginalName(h.listName));
+                h.listName = displayName;
+            }
+        } catch (Throwable ignored) {}
+    }
+
+    private static void send(Player viewer, ClientboundPlayerInfoUpdatePacket packet) {
+        try { ((CraftPlayer) viewer).getHandle().connection.send(packet); } catch (Throwable ignored) {}
+    }
+}
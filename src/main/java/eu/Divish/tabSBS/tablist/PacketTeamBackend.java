@@ -0,0 +1,205 @@
+package eu.Divish.tabSBS.tablist;
+
+import eu.Divish.tabSBS.util.ComponentCache;
+import io.papermc.paper.adventure.PaperAdventure;
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.protocol.game.ClientboundSetPlayerTeamPacket;
+import net.minecraft.world.scores.PlayerTeam;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.craftbukkit.entity.CraftPlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Team;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Packet-only týmy (sorting.scoreboard_mode: packet).
+ * - Žádné Bukkit Scoreboard/Team objekty na viewera – jen kompaktní model v paměti
+ *   a ClientboundSetPlayerTeamPacket posílaný přímo do spojení.
+ * - Definice týmu (název + vzhled) je globální, per-viewer se drží jen co už klient zná
+ *   (které týmy a kdo v nich je) → posíláme výhradně rozdíly.
+ * - Vzhled (prefix/suffix/barva/visibility) nastavuje NametagService přes {@link #decorate(String, Look)};
+ *   změna jde 1× do všech viewerů, kteří tým znají.
+ *
+ * Používá se jen z global region scheduleru; mapy jsou concurrent kvůli quit eventům.
+ */
+public final class PacketTeamBackend {
+
+    /** Prázdný vzhled (= vanilla). */
+    public static final Look PLAIN = new Look("", "", null, Team.OptionStatus.ALWAYS);
+
+    /** Odpojený NMS scoreboard – slouží jen jako „továrna“ na PlayerTeam, nikdy se nesynchronizuje. */
+    private final net.minecraft.world.scores.Scoreboard detached = new net.minecraft.world.scores.Scoreboard();
+
+    // globální definice týmů a vlastník (entry → tým) pro NametagService
+    private final Map<String, TeamDef> teams = new ConcurrentHashMap<>();
+    private final Map<String, String> teamOfEntry = new ConcurrentHashMap<>();
+
+    // viewer → co už klient zná
+    private final Map<UUID, ViewerState> viewers = new ConcurrentHashMap<>();
+
+    // ===== sorting API =====
+
+    /** Zařadí entry do týmu u daného viewera (vytvoří tým u klienta, pokud ho ještě nezná). */
+    public void assign(Player viewer, String entry, String team) {
+        ViewerState vs = viewers.computeIfAbsent(viewer.getUniqueId(), k -> new ViewerState());
+        String prev = vs.entries.get(entry);
+        if (team.equals(prev)) return;
+
+        TeamDef def = teams.computeIfAbsent(team, n -> {
+            // nový tým přebírá vzhled předchozího týmu hráče → žádné bliknutí bez prefixu
+            String old = teamOfEntry.get(entry);
+            TeamDef od = (old != null ? teams.get(old) : null);
+            return new TeamDef(n, od != null ? od.look : PLAIN);
+        });
+        teamOfEntry.put(entry, team);
+
+        if (vs.members.putIfAbsent(team, new HashSet<>()) == null) {
+            send(viewer, ClientboundSetPlayerTeamPacket.createAddOrModifyPacket(def.nms, true));
+        }
+        // klient při ADD hráče z původního týmu vyjme sám
+        send(viewer, ClientboundSetPlayerTeamPacket.createPlayerPacket(def.nms, entry, ClientboundSetPlayerTeamPacket.Action.ADD));
+        vs.members.get(team).add(entry);
+        vs.entries.put(entry, team);
+        if (prev != null) dropIfEmpty(viewer, vs, prev, entry);
+    }
+
+    /** Vyjme entry z našeho týmu u daného viewera (zakázaný svět / quit). */
+    public void unassign(Player viewer, String entry) {
+        ViewerState vs = viewers.get(viewer.getUniqueId());
+        if (vs == null) return;
+        String team = vs.entries.remove(entry);
+        if (team == null) return;
+        TeamDef def = teams.get(team);
+        if (def != null) {
+            send(viewer, ClientboundSetPlayerTeamPacket.createPlayerPacket(def.nms, entry, ClientboundSetPlayerTeamPacket.Action.REMOVE));
+        }
+        dropIfEmpty(viewer, vs, team, entry);
+    }
+
+    /** Tým, do kterého viewer aktuálně vidí entry (null = žádný). */
+    public String sentTeam(Player viewer, String entry) {
+        ViewerState vs = viewers.get(viewer.getUniqueId());
+        return vs == null ? null : vs.entries.get(entry);
+    }
+
+    /** Entry, které viewer aktuálně vidí v našich týmech (kopie). */
+    public Set<String> sentEntries(Player viewer) {
+        ViewerState vs = viewers.get(viewer.getUniqueId());
+        return vs == null ? Set.of() : new HashSet<>(vs.entries.keySet());
+    }
+
+    // ===== nametag API =====
+
+    /** Globální tým hráče (podle posledního přiřazení), nebo null. */
+    public String teamOf(String entry) {
+        return entry == null ? null : teamOfEntry.get(entry);
+    }
+
+    /** Nastaví vzhled týmu; modify paket jde jen když se vzhled opravdu změnil. */
+    public void decorate(String team, Look look) {
+        TeamDef def = teams.get(team);
+        if (def == null || Objects.equals(def.look, look)) return;
+        def.apply(look);
+        ClientboundSetPlayerTeamPacket modify = ClientboundSetPlayerTeamPacket.createAddOrModifyPacket(def.nms, false);
+        for (Player viewer : Bukkit.getOnlinePlayers()) {
+            ViewerState vs = viewers.get(viewer.getUniqueId());
+            if (vs != null && vs.members.containsKey(team)) send(viewer, modify);
+        }
+    }
+
+    // ===== lifecycle =====
+
+    /** Viewer odešel – klientský stav zaniká s ním. */
+    public void forgetViewer(UUID viewer) {
+        viewers.remove(viewer);
+    }
+
+    /** Entry odešlo ze serveru – vyjmout u všech viewerů, kteří ho znají. */
+    public void forgetEntry(String entry) {
+        for (Player viewer : Bukkit.getOnlinePlayers()) unassign(viewer, entry);
+        String team = teamOfEntry.remove(entry);
+        if (team != null && !teamOfEntry.containsValue(team)) teams.remove(team);
+    }
+
+    /** Odstraní všechny naše týmy u všech klientů (stop / přepnutí režimu). */
+    public void clearAll() {
+        for (Player viewer : Bukkit.getOnlinePlayers()) {
+            ViewerState vs = viewers.get(viewer.getUniqueId());
+            if (vs == null) continue;
+            for (String team : vs.members.keySet()) {
+                TeamDef def = teams.get(team);
+                if (def != null) send(viewer, ClientboundSetPlayerTeamPacket.createRemovePacket(def.nms));
+            }
+        }
+        viewers.clear();
+        teams.clear();
+        teamOfEntry.clear();
+    }
+
+    // ===== interní =====
+
+    private void dropIfEmpty(Player viewer, ViewerState vs, String team, String leaving) {
+        Set<String> m = vs.members.get(team);
+        if (m == null) return;
+        m.remove(leaving);
+        if (!m.isEmpty()) return;
+        vs.members.remove(team);
+        TeamDef def = teams.get(team);
+        if (def == null) return;
+        send(viewer, ClientboundSetPlayerTeamPacket.createRemovePacket(def.nms));
+        if (!teamOfEntry.containsValue(team)) {
+            // nikdo ho už nevlastní – a žádný jiný viewer ho nezná → zahodit definici
+            boolean known = false;
+            for (ViewerState o : viewers.values()) if (o.members.containsKey(team)) { known = true; break; }
+            if (!known) teams.remove(team);
+        }
+    }
+
+    private static void send(Player viewer, net.minecraft.network.protocol.Packet<?> packet) {
+        try { ((CraftPlayer) viewer).getHandle().connection.send(packet); } catch (Throwable ignored) {}
+    }
+
+    /** Vzhled týmu v legacy (&) zápisu; color == null → bez barvy jména. */
+    public record Look(String prefixLegacy, String suffixLegacy, ChatColor color, Team.OptionStatus nameTagVisibility) {}
+
+    private final class TeamDef {
+        final PlayerTeam nms;
+        volatile Look look;
+
+        TeamDef(String name, Look look) {
+            this.nms = new PlayerTeam(detached, name);
+            // vanilla-like defaults (stejné jako u Bukkit týmů)
+            nms.setCollisionRule(net.minecraft.world.scores.Team.CollisionRule.ALWAYS);
+            nms.setDeathMessageVisibility(net.minecraft.world.scores.Team.Visibility.ALWAYS);
+            nms.setAllowFriendlyFire(true);
+            nms.setSeeFriendlyInvisibles(false);
+            apply(look);
+        }
+
+        void apply(Look l) {
+            this.look = l;
+            nms.setPlayerPrefix(PaperAdventure.asVanilla(ComponentCache.deserialize(l.prefixLegacy())));
+            nms.setPlayerSuffix(PaperAdventure.asVanilla(ComponentCache.deserialize(l.suffixLegacy())));
+            ChatFormatting color = (l.color() != null ? ChatFormatting.getByCode(l.color().getChar()) : null);
+            nms.setColor(color != null ? color : ChatFormatting.RESET);
+            nms.setNameTagVisibility(switch (l.nameTagVisibility() == null ? Team.OptionStatus.ALWAYS : l.nameTagVisibility()) {
+                case NEVER -> net.minecraft.world.scores.Team.Visibility.NEVER;
+                case FOR_OTHER_TEAMS -> net.minecraft.world.scores.Team.Visibility.HIDE_FOR_OTHER_TEAMS;
+                case FOR_OWN_TEAM -> net.minecraft.world.scores.Team.Visibility.HIDE_FOR_OWN_TEAM;
+                default -> net.minecraft.world.scores.Team.Visibility.ALWAYS;
+            });
+        }
+    }
+
+    private static final class ViewerState {
+        final Map<String, Set<String>> members = new ConcurrentHashMap<>(); // tým → entry
+        final Map<String, String> entries = new ConcurrentHashMap<>();      // entry → tým
+    }
+}
@@ -0,0 +1,184 @@
+package eu.Divish.tabSBS.tablist;
+
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Řídké (gap-based) řadicí klíče pro TAB.
+ * - Každý hráč má hex klíč; všechny klíče mají stejnou šířku → lexikografické pořadí = pořadí v TABu.
+ * - Šířka = max(minimum z configu, nejmenší w s 16^w >= LOAD_FACTOR·(N+1)); roste s počtem hráčů
+ *   (do MAX_WIDTH), nikdy se během běhu nezmenšuje → žádné oscilace při join/quit na hraně.
+ * - Číselný rozsah klíčů je nejvýš 16^MAX_KEY_WIDTH (vejde se do int listOrderu); širší padding
+ *   z configu jen přidá úvodní nuly do textu klíče.
+ * - Z klíče se skládá název týmu (ts + klíč) i neviditelný prefix listName.
+ * - Při změně pořadí zůstane nejdelší rostoucí podposloupnost starých klíčů (LIS) beze změny,
+ *   nové/přesunuté hráče vložíme do mezer mezi sousedy.
+ * - Přečíslování všech (rebalance) jen když mezera dojde.
+ *
+ * Není thread-safe – volá se jen z global region scheduleru.
+ */
+final class SortKeyAllocator {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** "ts" + 14 = 16 znaků (limit názvu týmu). */
+    static final int MAX_WIDTH = 14;
+    /** 16^7 = 2^28 → klíč i listOrder (int) bez ztráty přesnosti; stačí na ~16 mil. hráčů. */
+    static final int MAX_KEY_WIDTH = 7;
+    /** Průměrná mezera mezi klíči po rebalance (prostor pro vkládání bez přečíslování). */
+    private static final int LOAD_FACTOR = 16;
+
+    private final Map<UUID, Long> keys = new HashMap<>();
+    private int minWidth;
+    private int width;
+    private long space; // 16^min(width, MAX_KEY_WIDTH)
+
+    SortKeyAllocator(int minWidth) {
+        setMinWidth(minWidth);
+    }
+
+    /** Minimální šířka (team_number_padding); změna se projeví rebalancí při příštím assign(). */
+    void setMinWidth(int minWidth) {
+        this.minWidth = Math.max(1, Math.min(MAX_WIDTH, minWidth));
+        if (this.width < this.minWidth || keys.isEmpty()) resize(this.minWidth);
+    }
+
+    int width() { return width; }
+
+    /**
+     * Přidělí klíče podle nového pořadí.
+     * @return UUID hráčů, jejichž klíč se změnil (nově přidělený / přesunutý / rebalance)
+     */
+    Set<UUID> assign(List<Player> ordered) {
+        int n = ordered.size();
+        UUID[] ids = new UUID[n];
+        long[] old = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = ordered.get(i).getUniqueId();
+            Long k = keys.get(ids[i]);
+            old[i] = (k == null ? -1L : k);
+        }
+        keys.keySet().retainAll(new HashSet<>(Arrays.asList(ids)));
+
+        // proměnná šířka: při růstu počtu hráčů klíč rozšíříme a všechny přečíslujeme (vzácné)
+        int need = widthFor(n);
+        if (need > width || width < minWidth) {
+            resize(Math.max(need, minWidth));
+            return rebalance(ids, null);
+        }
+
+        boolean[] stable = longestIncreasing(old);
+        Set<UUID> changed = new HashSet<>();
+
+        long lo = -1L;
+        int i = 0;
+        while (i < n) {
+            if (stable[i]) { lo = old[i]; i++; continue; }
+
+            int j = i;
+            while (j < n && !stable[j]) j++;
+            int m = j - i;
+            long hi = (j < n) ? old[j] : space;
+
+            long gap = hi - lo - 1;
+            if (gap < m) return rebalance(ids, old);
+
+            // rovnoměrně mezi sousedy; (hi - lo) >= m + 1 → step >= 1 a poslední klíč < hi
+            long step = (hi - lo) / (m + 1);
+            if (j == n) {
+                // konec seznamu nemá horní souseda – nechceme spálit půlku prostoru na jeden append
+                step = Math.max(1L, Math.min(step, space / (2L * (n + 1))));
+            }
+            for (int k = 0; k < m; k++) {
+                long key = lo + step * (k + 1);
+                keys.put(ids[i + k], key);
+                changed.add(ids[i + k]);
+            }
+            lo = keys.get(ids[j - 1]);
+            i = j;
+        }
+        return changed;
+    }
+
+    /** Hex klíč hráče (pevná šířka), nebo null pokud ještě nebyl přidělen. */
+    String keyOf(UUID id) {
+        Long k = keys.get(id);
+        if (k == null) return null;
+        char[] out = new char[width];
+        long v = k;
+        for (int i = width - 1; i >= 0; i--) { out[i] = HEX[(int) (v & 0xF)]; v >>>= 4; }
+        return new String(out);
+    }
+
+    /** Číselný klíč (pro listOrder), nebo -1 pokud ještě nebyl přidělen. */
+    long rawKey(UUID id) {
+        Long k = keys.get(id);
+        return k == null ? -1L : k;
+    }
+
+    long space() { return space; }
+
+    void remove(UUID id) { keys.remove(id); }
+
+    void clear() {
+        keys.clear();
+        resize(minWidth);
+    }
+
+    // ===== interní =====
+
+    /** Rovnoměrně rozprostře klíče pro všechny (mezery stejné velikosti). */
+    private Set<UUID> rebalance(UUID[] ids, long[] old) {
+        int n = ids.length;
+        Set<UUID> changed = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            // space >= LOAD_FACTOR·(n+1) (viz widthFor) → krok >= 1, klíče jsou unikátní
+            long key = (i + 1) * (space / (n + 1L));
+            keys.put(ids[i], key);
+            if (old == null || old[i] != key) changed.add(ids[i]);
+        }
+        return changed;
+    }
+
+    private void resize(int newWidth) {
+        this.width = Math.max(1, Math.min(MAX_WIDTH, newWidth));
+        this.space = 1L << (4 * Math.min(this.width, MAX_KEY_WIDTH));
+    }
+
+    /** Nejmenší šířka, při které 16^w pojme N hráčů s průměrnou mezerou LOAD_FACTOR. */
+    static int widthFor(int n) {
+        long need = (long) LOAD_FACTOR * (n + 1L);
+        int w = 1;
+        while (w < MAX_WIDTH && (1L << (4 * w)) < need) w++;
+        return w;
+    }
+
+    /** Označí prvky nejdelší ostře rostoucí podposloupnosti (hodnoty < 0 se ignorují). O(n log n). */
+    private static boolean[] longestIncreasing(long[] a) {
+        int n = a.length;
+        int[] tail = new int[n];
+        int[] prev = new int[n];
+        int len = 0;
+        for (int i = 0; i < n; i++) {
+            if (a[i] < 0) continue;
+            int lo = 0, hi = len;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (a[tail[mid]] < a[i]) lo = mid + 1; else hi = mid;
+            }
+            prev[i] = lo > 0 ? tail[lo - 1] : -1;
+            tail[lo] = i;
+            if (lo == len) len++;
+        }
+        boolean[] stable = new boolean[n];
+        for (int i = len > 0 ? tail[len - 1] : -1; i >= 0; i = prev[i]) stable[i] = true;
+        return stable;
+    }
+}
@@ -0,0 +1,228 @@
+package eu.Divish.tabSBS.tablist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Zkompilovaný řetězec řadicích typů (modules.tablist.sorting.types).
+ * - Sestaví se 1× v TablistConfig.load() a je neměnný → při /tabsbs reload se jen atomicky vymění celý config.
+ * - GROUP_ORDER / PAPI_STRING: hash mapa hodnota → index (místo List.indexOf).
+ * - PREFIX_MATCH / legacy priority: předkompilované wildcard vzory.
+ * - PAPI_NUMBER / PAPI_STRING: připravený placeholder (trim, příznak zda vůbec obsahuje %...%).
+ */
+public final class SortPlan {
+
+    /** Index pro „nenalezeno“ (stejně jako původní comparatory). */
+    public static final int UNMATCHED = 999;
+
+    private final List<Stage> stages;
+
+    private SortPlan(List<Stage> stages) {
+        this.stages = Collections.unmodifiableList(stages);
+    }
+
+    public List<Stage> stages() { return stages; }
+
+    // ===== kompilace =====
+
+    /**
+     * @param types        surový seznam map z configu (může být prázdný)
+     * @param priority     legacy priority (lowercase), použije se jen když types chybí
+     * @param defaultPrio  legacy default_priority
+     * @param tieDesc      legacy tie_breaker_name == desc
+     */
+    public static SortPlan compile(List<Map<?, ?>> types, List<String> priority, int defaultPrio, boolean tieDesc) {
+        List<Stage> out = new ArrayList<>();
+        if (types != null && !types.isEmpty()) {
+            for (Map<?, ?> m : types) {
+                Object typeObj = m.get("type");
+                String type = (typeObj == null ? "NAME" : String.valueOf(typeObj)).toUpperCase(Locale.ROOT);
+                Object phObj = m.get("placeholder");
+                String ph = (phObj == null ? "" : String.valueOf(phObj));
+                boolean desc = Boolean.TRUE.equals(m.get("desc"));
+
+                switch (type) {
+                    case "GROUP_ORDER" -> out.add(new GroupOrder(indexMap(toLowerList(m.get("order")))));
+                    case "PREFIX_MATCH" -> {
+                        List<WildcardPattern> pats = new ArrayList<>();
+                        for (String s : toLowerList(m.get("order"))) pats.add(WildcardPattern.compile(s));
+                        out.add(new PrefixMatch(Collections.unmodifiableList(pats)));
+                    }
+                    case "PAPI_NUMBER" -> out.add(new PapiNumber(PlaceholderHandle.of(ph), desc));
+                    case "PAPI_STRING" -> out.add(new PapiString(PlaceholderHandle.of(ph), indexMap(toLowerList(m.get("order")))));
+                    case "NAME" -> out.add(new Name(desc));
+                    default -> out.add(new Name(false));
+                }
+            }
+        } else {
+            out.add(LegacyPriority.compile(priority, defaultPrio));
+            out.add(new Name(tieDesc));
+        }
+        return new SortPlan(out);
+    }
+
+    // ===== stage typy =====
+
+    public sealed interface Stage permits GroupOrder, PrefixMatch, PapiNumber, PapiString, Name, LegacyPriority {}
+
+    /** Pořadí primární skupiny (Vault). */
+    public record GroupOrder(Map<String, Integer> index) implements Stage {
+        public int indexOf(String group) {
+            Integer i = index.get(group);
+            return i == null ? UNMATCHED : i;
+        }
+    }
+
+    /** Match na (odbarvený, lowercase) prefix – první vzor, který sedí, vyhrává. */
+    public record PrefixMatch(List<WildcardPattern> patterns) implements Stage {
+        public int indexOf(String prefixNorm) {
+            if (prefixNorm == null || prefixNorm.isEmpty()) return UNMATCHED;
+            for (int i = 0; i < patterns.size(); i++) {
+                if (patterns.get(i).matches(prefixNorm)) return i;
+            }
+            return UNMATCHED;
+        }
+    }
+
+    /** Číselný placeholder; desc = vyšší hodnota dřív. */
+    public record PapiNumber(PlaceholderHandle placeholder, boolean desc) implements Stage {}
+
+    /** Textový placeholder s explicitním pořadím hodnot. */
+    public record PapiString(PlaceholderHandle placeholder, Map<String, Integer> index) implements Stage {
+        public int indexOf(String valueNorm) {
+            Integer i = index.get(valueNorm);
+            return i == null ? UNMATCHED : i;
+        }
+    }
+
+    /** Fallback podle jména. */
+    public record Name(boolean desc) implements Stage {}
+
+    /**
+     * Legacy režim (sorting.priority) – pravidla "skupina" nebo "něco:prefixVzor".
+     * Vyhrává první pravidlo v pořadí, proto bereme minimum z indexu skupiny a prvního sedícího vzoru.
+     */
+    public record LegacyPriority(Map<String, Integer> groups, List<IndexedPattern> prefixRules, int fallback) implements Stage {
+        static LegacyPriority compile(List<String> rules, int defaultPrio) {
+            Map<String, Integer> groups = new HashMap<>();
+            List<IndexedPattern> prefixes = new ArrayList<>();
+            if (rules != null) {
+                for (int i = 0; i < rules.size(); i++) {
+                    String raw = rules.get(i);
+                    if (raw == null || raw.isBlank()) continue;
+                    String rule = raw.trim().toLowerCase(Locale.ROOT);
+                    int colon = rule.indexOf(':');
+                    if (colon >= 0) {
+                        String pat = rule.substring(colon + 1).trim();
+                        if (!pat.isEmpty()) prefixes.add(new IndexedPattern(i, WildcardPattern.compile(pat)));
+                        continue;
+                    }
+                    groups.putIfAbsent(rule, i);
+                }
+            }
+            int fallback = defaultPrio >= 0 ? Math.min(defaultPrio, 99) : 99;
+            return new LegacyPriority(Collections.unmodifiableMap(groups), Collections.unmodifiableList(prefixes), fallback);
+        }
+
+        public int indexOf(String group, String prefixNorm) {
+            int best = Integer.MAX_VALUE;
+            Integer g = groups.get(group);
+            if (g != null) best = g;
+            for (IndexedPattern ip : prefixRules) {
+                if (ip.index() >= best) break;
+                if (ip.pattern().matches(prefixNorm)) { best = ip.index(); break; }
+            }
+            return best == Integer.MAX_VALUE ? fallback : best;
+        }
+    }
+
+    public record IndexedPattern(int index, WildcardPattern pattern) {}
+
+    /** Připravený placeholder – trim + příznak, zda je co vyhodnocovat. */
+    public record PlaceholderHandle(String token, boolean dynamic) {
+        static PlaceholderHandle of(String raw) {
+            String t = raw == null ? "" : raw.trim();
+            return new PlaceholderHandle(t, t.indexOf('%') >= 0);
+        }
+    }
+
+    /**
+     * Předkompilovaný wildcard vzor (stejná sémantika jako původní wildcardMatch):
+     * bez '*' = přesná shoda; s '*' = části v pořadí, konec ukotvený jen bez koncové '*'.
+     */
+    public static final class WildcardPattern {
+        private final String exact;     // != null → přesná shoda
+        private final String[] parts;   // neprázdné části mezi '*'
+        private final boolean openEnd;
+
+        private WildcardPattern(String exact, String[] parts, boolean openEnd) {
+            this.exact = exact;
+            this.parts = parts;
+            this.openEnd = openEnd;
+        }
+
+        public static WildcardPattern compile(String pattern) {
+            String p = stripLegacyColors(pattern == null ? "" : pattern).toLowerCase(Locale.ROOT);
+            if (!p.contains("*")) return new WildcardPattern(p, null, false);
+            List<String> parts = new ArrayList<>();
+            for (String part : p.split("\\*", -1)) if (!part.isEmpty()) parts.add(part);
+            return new WildcardPattern(null, parts.toArray(new String[0]), p.endsWith("*"));
+        }
+
+        public boolean matches(String text) {
+            if (text == null) text = "";
+            if (exact != null) return text.equals(exact);
+            int pos = 0;
+            for (String part : parts) {
+                int idx = text.indexOf(part, pos);
+                if (idx < 0) return false;
+                pos = idx + part.length();
+            }
+            return openEnd || pos == text.length();
+        }
+    }
+
+    // ===== helpers =====
+
+    private static Map<String, Integer> indexMap(List<String> order) {
+        Map<String, Integer> m = new HashMap<>(Math.max(4, order.size() * 2));
+        for (int i = 0; i < order.size(); i++) m.putIfAbsent(order.get(i), i);
+        return Collections.unmodifiableMap(m);
+    }
+
+    private static List<String> toLowerList(Object val) {
+        if (val == null) return Collections.emptyList();
+        if (val instanceof List<?> list) {
+            List<String> out = new ArrayList<>(list.size());
+            for (Object o : list) if (o != null) out.add(o.toString().trim().toLowerCase(Locale.ROOT));
+            return out;
+        }
+        String s = String.valueOf(val);
+        String[] parts = s.split(",");
+        List<String> out = new ArrayList<>(parts.length);
+        for (String p : parts) out.add(p.trim().toLowerCase(Locale.ROOT));
+        return out;
+    }
+
+    private static String stripLegacyColors(String s) {
+        if (s == null || s.isEmpty()) return "";
+        char[] b = s.toCharArray();
+        StringBuilder sb = new StringBuilder(b.length);
+        for (int i = 0; i < b.length; i++) {
+            char c = b[i];
+            if (c == '&' && i + 1 < b.length) {
+                char n = b[i + 1];
+                if (n == 'x' || n == 'X') {
+                    int jump = Math.min(13, b.length - i); i += jump - 1; continue;
+                }
+                if ("0123456789AaBbCcDdEeFfKkLlMmNnOoRr".indexOf(n) >= 0) { i++; continue; }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,127 @@
+package eu.Divish.tabSBS.tablist;
+
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Inkrementální index pořadí pro TAB.
+ * - Hráči leží v TreeSetu seřazeném podle předpočítaného SortKey (+ UUID jako tie-break → totální pořadí).
+ * - Každý cyklus se vyjme a znovu vloží jen hráč, jehož klíč se změnil (O(změny · log N) místo N log N).
+ * - Výstupem je nové pořadí a příznak, jestli se proti minulému cyklu změnilo. Index šetří jen řazení
+ *   komparátorem; které klíče a týmy se mají přepsat, si dopočítá SortKeyAllocator (a backendy) sám.
+ * - Při změně SortPlanu (reload) se index postaví znovu.
+ *
+ * Není thread-safe – používá se jen z global region scheduleru (stejně jako zbytek TabSortingService).
+ */
+final class TabOrderIndex {
+
+    private SortPlan plan = null;
+    private TreeSet<SortKey> tree = new TreeSet<>();
+    private final Map<UUID, SortKey> byId = new HashMap<>();
+    private List<Player> ordered = Collections.emptyList();
+    // remove() mimo update() → příští update() musí strom projít, i když se žádný klíč nezměnil
+    private boolean dirty = false;
+
+    /**
+     * Zapracuje čerstvé klíče (1 na online hráče) a vrátí nové pořadí.
+     * Hráči, kteří v {@code fresh} chybí, se z indexu odstraní.
+     */
+    Delta update(Collection<SortKey> fresh, SortPlan plan, Comparator<SortKey> base) {
+        boolean rebuilt = false;
+        if (this.plan != plan) {
+            this.plan = plan;
+            this.tree = new TreeSet<>(base.thenComparing(k -> k.id));
+            byId.clear();
+            rebuilt = true;
+        }
+
+        boolean touched = rebuilt || dirty;
+        dirty = false;
+        Set<UUID> seen = new HashSet<>(fresh.size() * 2);
+        for (SortKey k : fresh) {
+            seen.add(k.id);
+            SortKey old = byId.get(k.id);
+            if (old != null && old.player == k.player && old.sameTuple(k)) continue;
+            if (old != null) tree.remove(old);
+            tree.add(k);
+            byId.put(k.id, k);
+            touched = true;
+        }
+        if (byId.size() != seen.size()) {
+            for (var it = byId.entrySet().iterator(); it.hasNext(); ) {
+                var e = it.next();
+                if (seen.contains(e.getKey())) continue;
+                tree.remove(e.getValue());
+                it.remove();
+                touched = true;
+            }
+        }
+
+        if (!touched) return new Delta(ordered, false);
+
+        // projdeme strom (bez řazení); přesun klíče beze změny pořadí nic nemění
+        List<Player> next = new ArrayList<>(tree.size());
+        for (SortKey k : tree) next.add(k.player);
+        boolean changed = rebuilt || !next.equals(ordered);
+        ordered = Collections.unmodifiableList(next);
+        return new Delta(ordered, changed);
+    }
+
+    /** Odebere hráče (quit); rank ostatních se dopočítá v příštím update(). */
+    void remove(UUID id) {
+        SortKey old = byId.remove(id);
+        if (old == null) return;
+        tree.remove(old);
+        dirty = true;
+    }
+
+    /** Zahodí celý stav (stop / vypnutí sortingu). */
+    void clear() {
+        plan = null;
+        tree = new TreeSet<>();
+        byId.clear();
+        ordered = Collections.emptyList();
+        dirty = false;
+    }
+
+    /**
+     * @param ordered aktuální pořadí všech indexovaných hráčů
+     * @param changed pořadí se proti minulému update() změnilo
+     */
+    record Delta(List<Player> ordered, boolean changed) {
+        boolean isEmpty() { return !changed; }
+    }
+
+    /** Kompaktní klíč hráče pro jeden cyklus: numerické sloty (desc už znegované) + lowercase jméno. */
+    static final class SortKey {
+        final Player player;
+        final UUID id;
+        final String name;     // lowercase
+        final double[] slots;  // 1 slot na stage (NAME slot nevyužit)
+        final String[] raw;    // surové hodnoty (jen debug)
+
+        SortKey(Player player, String name, double[] slots, String[] raw) {
+            this.player = player;
+            this.id = player.getUniqueId();
+            this.name = name;
+            this.slots = slots;
+            this.raw = raw;
+        }
+
+        boolean sameTuple(SortKey o) {
+            return name.equals(o.name) && Arrays.equals(slots, o.slots);
+        }
+    }
+}
@@ -1,34 +1,28 @@
 package eu.Divish.tabSBS.tablist;
 
 import eu.Divish.tabSBS.nametag.NametagService; // NOVĚ: Nametag integrace
-import eu.Divish.tabSBS.tablist.TablistConfig.SortingCfg;
-import eu.Divish.tabSBS.tablist.TablistConfig.TieBreakerName;
+import eu.Divish.tabSBS.papi.PlaceholderService;
+import eu.Divish.tabSBS.tablist.TabOrderIndex.SortKey;
+import eu.Divish.tabSBS.tablist.TablistConfig.SortingBackend;
 import eu.Divish.tabSBS.worlds.WorldsGate;
+import eu.Divish.tabSBS.util.ComponentCache;
 import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
-import me.clip.placeholderapi.PlaceholderAPI;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import net.milkbowl.vault.chat.Chat;
 import net.milkbowl.vault.permission.Permission;
 import org.bukkit.Bukkit;
 import org.bukkit.scoreboard.Scoreboard;
-import org.bukkit.craftbukkit.entity.CraftPlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scoreboard.Team;
 
-import net.minecraft.network.protocol.game.ClientboundPlayerInfoRemovePacket;
-import net.minecraft.network.protocol.game.ClientboundPlayerInfoUpdatePacket;
-import net.minecraft.server.level.ServerPlayer;
-import net.minecraft.server.network.ServerGamePacketListenerImpl;
-
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TAB-like sorter:
- * - Per-viewer scoreboard + indexované týmy (ts000..) => deterministické pořadí.
+ * - Per-viewer scoreboard + týmy s řídkým klíčem (ts<hex>) => deterministické pořadí.
  * - PlayerListName s neviditelným sort-klíčem (pojistka).
  * - Anti-override: udržuje náš scoreboard u hráče, vrací změny zpět.
  * - Konfigurovatelný řetězec řadicích typů (GROUP_ORDER, PREFIX_MATCH, PAPI_NUMBER, PAPI_STRING, NAME).
@@ -38,7 +32,7 @@ import java.util.concurrent.ConcurrentHashMap;
  * - stop(): navíc odstraní naše týmy z boardů a resetuje listName.
  * - assignTeamsOnBoard(): respektuje WorldsGate (hráče v zakázaných světech z týmů odstraní).
  * - Přidány aliasy refreshAll()/applyOnce()/clearFor().
- * - NMS re-add paket jen pokud sorting.enforce_via_protocollib = true.
+ * - sorting.enforce_via_protocollib = true → dávkový UPDATE_DISPLAY_NAME/UPDATE_LIST_ORDER jen pro změněné hráče.
  *
  * NOVĚ:
  * - Režim bez sortingu vždy udržuje viditelné jméno v TABu (applyBaseOnlyAll), i když je AFK v configu vypnuté.
@@ -47,6 +41,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * - Anti-blink integrace s NametagService: při přesazení do tsNNN týmu výchozí dekorace týmu resetneme
  *   a okamžitě „přebarvíme“ hráče přes NametagService.applyFor(..).
  * - ✅ Vanilla-like defaults pro všechny námi vytvářené týmy (kolize/jmenovky/death/friendly/invis).
+ * - scoreboard_mode: packet → týmy jen jako ClientboundSetPlayerTeamPacket (PacketTeamBackend), bez Bukkit boardů.
+ * - sorting.backend: list_order → bez týmů a bez neviditelného prefixu, jen nativní listOrder (1.21.2+).
  */
 public final class TabSortingService {
     private static final String TEAM_PREFIX = "ts";
@@ -55,7 +51,7 @@ public final class TabSortingService {
 
     private final Plugin plugin;
     private final WorldsGate worldsGate; // může být null
-    private TablistConfig cfg;
+    private volatile TablistConfig cfg; // NOVĚ: volatile → atomická výměna při /tabsbs reload
 
     // Vault (může být null)
     private final Permission perms;
@@ -64,6 +60,9 @@ public final class TabSortingService {
     // NOVĚ: volitelná reference na Nametag modul (může být null)
     private final NametagService nametagSvc;
 
+    // NOVĚ: sdílené vyhodnocení placeholderů (memo per hráč + token napříč moduly)
+    private final PlaceholderService placeholders;
+
     // periodický loop
     private ScheduledTask loopTask = null;
     private boolean running = false;
@@ -77,24 +76,47 @@ public final class TabSortingService {
     // hráč -> aktuální tým (poslední přiřazení)
     private final Map<UUID, String> currentTeams = new ConcurrentHashMap<>();
 
-    private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.builder()
-            .character('&').hexColors().useUnusualXRepeatedCharacterHexFormat().build();
+    // NOVĚ: inkrementální pořadí (re-insert jen změněných klíčů) + poslední odeslaný listName
+    private final TabOrderIndex orderIndex = new TabOrderIndex();
+    // NOVĚ: řídké klíče s mezerami → vložení/přesun nepřečísluje všechny pod ním
+    private final SortKeyAllocator sortKeys;
+    private final Map<UUID, String> lastListNames = new ConcurrentHashMap<>();
+
+    // NOVĚ: board → poslední přiřazení týmů (diff místo plného přepisu); weak → zahozené boardy zmizí samy
+    private final Map<Scoreboard, BoardAssign> boardStates = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // NOVĚ: cílové přiřazení týmů (1× za cyklus, pro všechny boardy/viewery); verze se zvedne jen při změně
+    private TeamTarget teamTarget = null;
+    private long teamTargetVersion = 0L;
+    // packet režim: viewer → verze cíle, kterou už jeho klient má
+    private final Map<UUID, Long> packetApplied = new ConcurrentHashMap<>();
+
+    // NOVĚ: scoreboard_mode: packet – týmy jen jako pakety, bez Bukkit Scoreboard/Team na viewera
+    private final PacketTeamBackend packetTeams = new PacketTeamBackend();
+
+    // NOVĚ: enforce_via_protocollib → dávkové UPDATE_DISPLAY_NAME + UPDATE_LIST_ORDER jen pro změněné hráče
+    private final ListInfoPusher listInfo = new ListInfoPusher();
+    private String lastSbMode = null;
+    private boolean lastOrdersViaPackets = false;
 
     // PŮVODNÍ konstruktor (ponechán kvůli kompatibilitě)
     public TabSortingService(Plugin plugin, TablistConfig cfg, WorldsGate worldsGate,
-                             Permission perms, Chat chat) {
-        this(plugin, cfg, worldsGate, perms, chat, null);
+                             Permission perms, Chat chat, PlaceholderService placeholders) {
+        this(plugin, cfg, worldsGate, perms, chat, null, placeholders);
     }
 
     // NOVÝ konstruktor s volitelnou NametagService (eliminace 1s „bliknutí“)
     public TabSortingService(Plugin plugin, TablistConfig cfg, WorldsGate worldsGate,
-                             Permission perms, Chat chat, NametagService nametagSvc) {
+                             Permission perms, Chat chat, NametagService nametagSvc,
+                             PlaceholderService placeholders) {
         this.plugin = plugin;
+        this.placeholders = placeholders;
         this.cfg = cfg;
         this.worldsGate = worldsGate;
         this.perms = perms;
         this.chat = chat;
         this.nametagSvc = nametagSvc; // může být null
+        this.sortKeys = new SortKeyAllocator(cfg.sorting().teamNumberPadding());
     }
 
     // ===== lifecycle =====
@@ -157,6 +179,7 @@ public final class TabSortingService {
         boolean wasEnabled = (this.cfg != null && this.cfg.sorting().enabled());
 
         this.cfg = newCfg;
+        sortKeys.setMinWidth(newCfg.sorting().teamNumberPadding());
 
         boolean nowEnabled = this.cfg.sorting().enabled();
 
@@ -226,6 +249,10 @@ public final class TabSortingService {
             }
         }
         currentTeams.remove(p.getUniqueId());
+        lastListNames.remove(p.getUniqueId());
+        listInfo.forgetTarget(p.getUniqueId());
+        BoardAssign st = boardStates.get(sb);
+        if (st != null) { st.entries.remove(p.getName()); st.version = -1L; }
 
         // NOVĚ: v režimu bez sortingu vrať do TABu bezpečné (viditelné) základní jméno
         if (!cfg.sorting().enabled() && isAllowedHere(p)) {
@@ -233,7 +260,7 @@ public final class TabSortingService {
                     ? safe(chat.getPlayerPrefix(p)) + p.getName() + safe(chat.getPlayerSuffix(p))
                     : p.getName();
             baseVisible = capVisibleLegacy(baseVisible, maxListNameVisible());
-            try { p.playerListName(LEGACY.deserialize(baseVisible)); }
+            try { p.playerListName(ComponentCache.deserialize(baseVisible)); }
             catch (Throwable ignored) { try { p.setPlayerListName(translateAmpersand(baseVisible)); } catch (Throwable ignored2) {} }
         } else {
             // při zapnutém sortingu nebo v zakázaném světě vrať default
@@ -270,7 +297,7 @@ public final class TabSortingService {
             baseVisible = capVisibleLegacy(baseVisible, maxListNameVisible());
             if (isVisiblyEmpty(baseVisible)) baseVisible = p.getName(); // << přidaná pojistka
 
-            try { p.playerListName(LEGACY.deserialize(baseVisible)); }
+            try { p.playerListName(ComponentCache.deserialize(baseVisible)); }
             catch (Throwable ignored) { try { p.setPlayerListName(translateAmpersand(baseVisible)); } catch (Throwable ignored2) {} }
         }
     }
@@ -292,13 +319,20 @@ public final class TabSortingService {
             if (isVisiblyEmpty(visible)) visible = p.getName();
 
             // DŮLEŽITÉ: preferuj Adventure, až pak legacy String
-            try { p.playerListName(LEGACY.deserialize(visible)); }
+            try { p.playerListName(ComponentCache.deserialize(visible)); }
             catch (Throwable ignored) { try { p.setPlayerListName(translateAmpersand(visible)); } catch (Throwable ignored2) {} }
         }
     }
 
     public void remove(Player p) {
         currentTeams.remove(p.getUniqueId());
+        lastListNames.remove(p.getUniqueId());
+        orderIndex.remove(p.getUniqueId());
+        sortKeys.remove(p.getUniqueId());
+        packetTeams.forgetViewer(p.getUniqueId());
+        packetApplied.remove(p.getUniqueId());
+        packetTeams.forgetEntry(p.getName());
+        listInfo.forget(p.getUniqueId());
     }
 
     // ===== core =====
@@ -313,26 +347,44 @@ public final class TabSortingService {
         if (now - lastEnforceMs < minGap) return;
         lastEnforceMs = now;
 
-        // 1) seber a seřaď
-        List<Player> players = new ArrayList<>(online);
-        Comparator<Player> cmp = buildComparator();
-        players.sort(cmp);
+        // 1) klíče 1× na hráče (PAPI/Vault mimo comparator)
+        // plán je zkompilovaný v TablistConfig.load(); lokální snapshot = konzistentní i při souběžném reloadu
+        SortPlan plan = cfg.sorting().plan();
+        List<SortKey> keys = extractSortKeys(online, plan);
+
+        // NOVĚ: žádný full sort – index přesadí jen hráče se změněným klíčem; klíče se přepočítají jen při změně pořadí
+        TabOrderIndex.Delta delta = orderIndex.update(keys, plan, keyComparator(plan));
+        List<Player> players = delta.ordered();
+        if (!delta.isEmpty()) sortKeys.assign(players);
 
         if (DEBUG) {
+            keys.sort(keyComparator(plan));
             StringBuilder sb = new StringBuilder("[TabSBS:ORDER] ");
-            for (int i = 0; i < players.size(); i++) {
-                Player x = players.get(i);
+            for (int i = 0; i < keys.size(); i++) {
+                SortKey k = keys.get(i);
                 sb.append(String.format(Locale.ROOT, "%03d:%s { %s }  ",
-                        i, x.getName(), debugKeys(x)));
+                        i, k.player.getName(), debugKeys(k, plan)));
             }
+            sb.append("| changed=").append(delta.changed());
             plugin.getLogger().info(sb.toString());
         }
 
         // 2) listName s neviditelným sort-klíčem + AFK overlay (jen pokud world dovoluje)
-        for (int i = 0; i < players.size(); i++) {
-            Player p = players.get(i);
+        //    Zapisujeme jen když se změnil rank nebo viditelné jméno (jinak žádný paket).
+        //    Při enforce_via_protocollib jde jméno i pořadí v jednom dávkovém paketu na viewera (krok 4).
+        //    backend: list_order → žádné týmy ani neviditelný prefix, pořadí jen přes nativní listOrder.
+        boolean listOrderBackend = cfg.sorting().backend() == SortingBackend.LIST_ORDER;
+        boolean namesViaPackets = !listOrderBackend && cfg.sorting().enforceViaProtocolLib();
+        boolean viaPackets = listOrderBackend || namesViaPackets;
+        List<Player> shown = viaPackets ? new ArrayList<>(players.size()) : null;
+        Map<UUID, String> shownNames = namesViaPackets ? new HashMap<>(players.size() * 2) : null;
+        Map<UUID, Integer> shownOrders = viaPackets ? new HashMap<>(players.size() * 2) : null;
+        Map<String, String> teams = listOrderBackend ? Map.of() : new HashMap<>(players.size() * 2);
+        List<Player> teamOrder = listOrderBackend ? List.of() : new ArrayList<>(players.size());
+        for (Player p : players) {
             if (!isAllowedHere(p)) {
-                clearFor(p);
+                if (lastListNames.containsKey(p.getUniqueId())) clearFor(p);
+                if (viaPackets) listInfo.forgetTarget(p.getUniqueId());
                 continue;
             }
             String baseVisible = (cfg.sorting().decorateNames() && chat != null)
@@ -344,43 +396,49 @@ public final class TabSortingService {
             // i pro sorting režim pojistka na délku
             visible = capVisibleLegacy(visible, maxListNameVisible());
 
-            String legacy = translateAmpersand(buildSortKeyPrefix(i) + visible);
+            String key = listOrderBackend ? null : sortKeys.keyOf(p.getUniqueId());
+            if (key != null) {
+                String team = TEAM_PREFIX + key;
+                teams.put(p.getName(), team);
+                teamOrder.add(p);
+                currentTeams.put(p.getUniqueId(), team);
+            }
+            String keyPrefix = buildSortKeyPrefix(key);
+            String legacy = translateAmpersand(keyPrefix + visible);
+            if (viaPackets) {
+                shown.add(p);
+                shownOrders.put(p.getUniqueId(), ListInfoPusher.orderFromKey(sortKeys.rawKey(p.getUniqueId()), sortKeys.space()));
+            }
+            if (namesViaPackets) {
+                shownNames.put(p.getUniqueId(), legacy);
+                lastListNames.put(p.getUniqueId(), legacy);
+                continue;
+            }
+            if (legacy.equals(lastListNames.get(p.getUniqueId()))) continue;
+            lastListNames.put(p.getUniqueId(), legacy);
+
             try { p.setPlayerListName(legacy); }
-            catch (Throwable ignored) { try { p.playerListName(LEGACY.deserialize(buildSortKeyPrefix(i) + visible)); } catch (Throwable ignored2) {} }
+            catch (Throwable ignored) { try { p.playerListName(ComponentCache.deserialize(keyPrefix + visible)); } catch (Throwable ignored2) {} }
         }
 
-        // 3) scoreboard režim
-        String sbMode = plugin.getConfig().getString("modules.tablist.sorting.scoreboard_mode", "per_viewer").toLowerCase(Locale.ROOT);
+        // 3) scoreboard režim (list_order backend žádné týmy nepotřebuje)
+        String sbMode = listOrderBackend ? "list_order"
+                : plugin.getConfig().getString("modules.tablist.sorting.scoreboard_mode", "per_viewer").toLowerCase(Locale.ROOT);
+        switchTeamModeIfNeeded(sbMode, viaPackets);
+        TeamTarget target = nextTeamTarget(teams, teamOrder);
         switch (sbMode) {
-            case "shared" -> applySharedScoreboard(players);
-            default -> applyPerViewerScoreboards(players);
+            case "list_order" -> { /* pořadí řeší krok 4 */ }
+            case "shared" -> applySharedScoreboard(target);
+            case "packet" -> applyPacketTeams(target);
+            default -> applyPerViewerScoreboards(target);
         }
 
-        // 4) NMS re-add jen pokud to máš povolené v configu (enforce_via_protocollib == true)
-        if (cfg.sorting().enforceViaProtocolLib()) {
-            List<UUID> uuids = new ArrayList<>(players.size());
-            List<ServerPlayer> nmsPlayers = new ArrayList<>(players.size());
-            for (Player bp : players) {
-                uuids.add(bp.getUniqueId());
-                nmsPlayers.add(((CraftPlayer) bp).getHandle());
-            }
-            ClientboundPlayerInfoRemovePacket remove = new ClientboundPlayerInfoRemovePacket(uuids);
-            EnumSet<ClientboundPlayerInfoUpdatePacket.Action> actions = EnumSet.of(
-                    ClientboundPlayerInfoUpdatePacket.Action.ADD_PLAYER,
-                    ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LISTED,
-                    ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LATENCY,
-                    ClientboundPlayerInfoUpdatePacket.Action.UPDATE_GAME_MODE,
-                    ClientboundPlayerInfoUpdatePacket.Action.UPDATE_DISPLAY_NAME
-            );
-            ClientboundPlayerInfoUpdatePacket add = new ClientboundPlayerInfoUpdatePacket(actions, nmsPlayers);
-
-            Bukkit.getGlobalRegionScheduler().runDelayed(plugin, task -> {
-                for (Player viewer : online) {
-                    ServerGamePacketListenerImpl conn = ((CraftPlayer) viewer).getHandle().connection;
-                    conn.send(remove);
-                    conn.send(add);
-                }
-            }, 2L);
+        // 4) enforce_via_protocollib: místo remove + ADD_PLAYER všech hráčů (N×N záznamů se skiny)
+        //    jen UPDATE_DISPLAY_NAME + UPDATE_LIST_ORDER změněných hráčů, 1 paket na viewera.
+        //    listOrder (1.21.2+) se bere z řídkého klíče → přesun jednoho hráče nemění pořadí ostatním.
+        //    list_order backend: jen UPDATE_LIST_ORDER (jméno jde normálně přes setPlayerListName, bez prefixu).
+        if (viaPackets) {
+            listInfo.push(shown, shownOrders, shownNames);
         }
     }
 
@@ -388,7 +446,7 @@ public final class TabSortingService {
 
     private boolean isAfkByPapi(Player p) {
         String ph = plugin.getConfig().getString("modules.tablist.afk_display.placeholder", "%essentials_afk%");
-        String raw = me.clip.placeholderapi.PlaceholderAPI.setPlaceholders(p, ph);
+        String raw = placeholders.apply(p, ph);
         if (raw != null && raw.contains("%")) raw = "";
         String norm = stripLegacyColors(safe(raw)).trim().toLowerCase(Locale.ROOT);
 
@@ -467,17 +525,89 @@ public final class TabSortingService {
 
     // --- Scoreboard applicators ---
 
-    private void applyPerViewerScoreboards(List<Player> ordered) {
+    private void applyPerViewerScoreboards(TeamTarget target) {
+        Set<Player> moved = new HashSet<>();
         for (Player viewer : Bukkit.getOnlinePlayers()) {
             Scoreboard sb = ensureViewerBoard(viewer);
-            assignTeamsOnBoard(sb, ordered);
+            assignTeamsOnBoard(sb, target, moved);
         }
+        redecorate(moved);
     }
 
-    private void applySharedScoreboard(List<Player> ordered) {
+    private void applySharedScoreboard(TeamTarget target) {
         Scoreboard sb = Bukkit.getScoreboardManager().getMainScoreboard();
         ensureMarker(sb);
-        assignTeamsOnBoard(sb, ordered);
+        Set<Player> moved = new HashSet<>();
+        assignTeamsOnBoard(sb, target, moved);
+        redecorate(moved);
+    }
+
+    /**
+     * NOVĚ: packet režim – cílové přiřazení je pro všechny viewery stejné (klíč je globální),
+     * backend pošle každému jen rozdíl proti tomu, co už jeho klient zná.
+     * Viewer, jehož klient už má aktuální verzi cíle, se přeskočí celý.
+     */
+    private void applyPacketTeams(TeamTarget target) {
+        Set<Player> moved = new HashSet<>();
+        for (Player viewer : Bukkit.getOnlinePlayers()) {
+            Long applied = packetApplied.get(viewer.getUniqueId());
+            if (applied != null && applied == target.version()) continue;
+
+            for (String entry : packetTeams.sentEntries(viewer)) {
+                if (!target.teams().containsKey(entry)) packetTeams.unassign(viewer, entry);
+            }
+            for (Player p : target.order()) {
+                String team = target.teams().get(p.getName());
+                if (team.equals(packetTeams.sentTeam(viewer, p.getName()))) continue;
+                packetTeams.assign(viewer, p.getName(), team);
+                moved.add(p);
+            }
+            packetApplied.put(viewer.getUniqueId(), target.version());
+        }
+        redecorate(moved);
+    }
+
+    /** Nový cíl pro tento cyklus; stejné přiřazení jako minule → stejná verze (boardy/viewery se přeskočí). */
+    private TeamTarget nextTeamTarget(Map<String, String> teams, List<Player> order) {
+        TeamTarget prev = this.teamTarget;
+        long version = (prev != null && prev.teams().equals(teams)) ? prev.version() : ++teamTargetVersion;
+        TeamTarget next = new TeamTarget(version, teams, order);
+        this.teamTarget = next;
+        return next;
+    }
+
+    /**
+     * Cílové přiřazení entry → ts&lt;klíč&gt; (jen hráči v povolených světech), sestavené 1× za cyklus.
+     * @param order hráči z {@code teams} v pořadí TABu
+     */
+    private record TeamTarget(long version, Map<String, String> teams, List<Player> order) {}
+
+    /** Přepnutí scoreboard_mode / backendu za běhu (reload): uklidí týmy a listOrder předchozího režimu. */
+    private void switchTeamModeIfNeeded(String sbMode, boolean ordersViaPackets) {
+        if (!ordersViaPackets && lastOrdersViaPackets) listInfo.reset(); // klientům vrátit listOrder 0
+        lastOrdersViaPackets = ordersViaPackets;
+
+        if (sbMode.equals(lastSbMode)) return;
+        String prev = lastSbMode;
+        lastSbMode = sbMode;
+        if (prev == null) return;
+        boolean prevBoards = !"packet".equals(prev) && !"list_order".equals(prev);
+        boolean nowBoards = !"packet".equals(sbMode) && !"list_order".equals(sbMode);
+        if ("packet".equals(prev)) { packetTeams.clearAll(); packetApplied.clear(); }
+        if (prevBoards && !nowBoards) unregisterBoardTeams();
+        // týmy pryč → listName se musí přepsat (prefix / bez prefixu)
+        lastListNames.clear();
+    }
+
+    /** Packet týmy pro NametagService (dekorace přes pakety místo Bukkit týmů). */
+    public PacketTeamBackend packetTeams() { return packetTeams; }
+
+    /** NOVĚ: NametagService.applyFor(..) už jde přes všechny viewery → stačí 1× na přesunutého hráče. */
+    private void redecorate(Set<Player> moved) {
+        if (nametagSvc == null || moved.isEmpty()) return;
+        for (Player p : moved) {
+            try { nametagSvc.applyFor(p); } catch (Throwable ignored) {}
+        }
     }
 
     private Scoreboard ensureViewerBoard(Player viewer) {
@@ -498,83 +628,123 @@ public final class TabSortingService {
     }
 
     /**
-     * Přiřadí indexované týmy ts000..; zároveň odstraní hráče z našich týmů,
+     * Přiřadí týmy ts&lt;klíč&gt; (klíč ze SortKeyAllocatoru); zároveň odstraní hráče z našich týmů,
      * pokud nejsou ve světě, kde je to povolené (WorldsGate).
      *
-     * NOVĚ: Aby se při změně priorit neobjevil na okamžik prefix/suffix předchozího člena,
-     * cílový tým vždy nejdřív vyčistíme (entries + dekorace) a teprve poté přidáme hráče
-     * a okamžitě necháme NametagService aplikovat správný vzhled.
-     * + ✅ aplikujeme vanilla-like defaults na každý náš tým (idempotentně).
+     * NOVĚ (diff): každý board si pamatuje poslední přiřazení entry → tým. Sáhneme jen na hráče,
+     * jejichž tým se změnil (1× addEntry – Bukkit ho ze starého týmu na stejném boardu vyjme sám),
+     * na ty, které z našeho týmu někdo přesunul (hasEntry), a na ty, kteří z pořadí vypadli
+     * (quit / zakázaný svět). Plný průchod týmy jen při prvním
+     * setkání s boardem (převzetí stavu, který tam už je). Board, který už odpovídá aktuální
+     * verzi cíle, se přeskočí celý – zásahy zvenku hledá watchdog a board pak označí k projití.
+     *
+     * Aby se při přesunu neobjevil na okamžik prefix/suffix předchozího člena, cílový tým
+     * před přidáním vyčistíme od dekorací; přebarvení přes NametagService proběhne 1× na hráče
+     * po zpracování všech boardů (viz {@link #redecorate(Set)}).
      */
-    private void assignTeamsOnBoard(Scoreboard sb, List<Player> ordered) {
-        // Nejprve všechny hráče v „zakázaných“ světech z našich týmů odstraníme.
-        for (Team other : sb.getTeams()) {
-            String n = other.getName();
-            if (n == null) continue;
-            if (!n.equals(MARKER_TEAM) && !n.startsWith(TEAM_PREFIX)) continue;
-            for (String entry : new HashSet<>(other.getEntries())) {
-                Player ep = Bukkit.getPlayerExact(entry);
-                if (ep == null) continue;
-                if (!isAllowedHere(ep)) {
-                    try { other.removeEntry(entry); } catch (Throwable ignored) {}
-                }
+    private void assignTeamsOnBoard(Scoreboard sb, TeamTarget target, Set<Player> moved) {
+        BoardAssign state = boardStates.get(sb);
+        if (state == null) {
+            state = BoardAssign.adopt(sb);
+            boardStates.put(sb, state);
+        }
+        // board už má tuto verzi cíle a watchdog na něm nenašel cizí zásah → není co dělat
+        if (state.version == target.version()) return;
+        Map<String, String> teams = target.teams();
+
+        // týmy, které mohly zůstat prázdné (klíče jsou řídké → prázdné týmy po sobě uklízíme)
+        Set<String> vacated = new HashSet<>();
+
+        // 1) kdo z pořadí vypadl (zakázaný svět / odpojen) → pryč z našeho týmu
+        for (var it = state.entries.entrySet().iterator(); it.hasNext(); ) {
+            var e = it.next();
+            if (teams.containsKey(e.getKey())) continue;
+            Team old = sb.getTeam(e.getValue());
+            if (old != null) {
+                try { old.removeEntry(e.getKey()); } catch (Throwable ignored) {}
             }
+            vacated.add(e.getValue());
+            it.remove();
         }
 
-        // Teď přiřadíme pořadí pouze hráčům, u kterých je to povoleno.
-        int i = 0;
-        for (Player p : ordered) {
-            if (!isAllowedHere(p)) continue;
-
-            String newTeam = TEAM_PREFIX + String.format("%03d", i++);
+        // 2) přesuny – jen entry, jejichž tým se změnil
+        for (Player p : target.order()) {
+            String entry = p.getName();
+            String newTeam = teams.get(entry);
             Team t = sb.getTeam(newTeam);
+            // cache říká „už tam je“ – ověř (O(1)); jiný plugin / /team / nt_ tým ho mohl přesunout
+            boolean cached = newTeam.equals(state.entries.get(entry));
+            if (cached && t != null && t.hasEntry(entry)) continue;
+
             if (t == null) {
                 t = sb.registerNewTeam(newTeam);
-            }
-            // ✅ vždy zajisti vanilla-like defaults (kolize/jmenovky/death/friendly/invis)
-            applyVanillaTeamDefaults(t);
-
-            if (!t.hasEntry(p.getName())) {
-                // očisti z jiných našich týmů na TOMTO boardu
-                for (Team other : sb.getTeams()) {
-                    if (other == t) continue;
-                    String n = other.getName();
-                    if (n != null && (n.equals(MARKER_TEAM) || n.startsWith(TEAM_PREFIX) || n.startsWith("tabsbs"))) {
-                        try { other.removeEntry(p.getName()); } catch (Throwable ignored) {}
-                    }
-                }
-
-                // NOVĚ: před přidáním hráče do cílového týmu vždy vyčisti zbytky a dekorace
-                for (String leftover : new HashSet<>(t.getEntries())) {
-                    try { t.removeEntry(leftover); } catch (Throwable ignored) {}
-                }
-                // reset prefix/suffix/barva – Adventure i legacy fallback
+                // ✅ vanilla-like defaults (kolize/jmenovky/death/friendly/invis) – stačí při vytvoření
+                applyVanillaTeamDefaults(t);
+            } else {
+                // převzatý tým: reset prefix/suffix/barva – Adventure i legacy fallback
                 try { t.prefix(Component.empty()); } catch (Throwable ignored) { try { t.setPrefix(""); } catch (Throwable ignored2) {} }
                 try { t.suffix(Component.empty()); } catch (Throwable ignored) { try { t.setSuffix(""); } catch (Throwable ignored2) {} }
                 try { t.color(net.kyori.adventure.text.format.NamedTextColor.WHITE); }
                 catch (Throwable ignored) { try { t.setColor(org.bukkit.ChatColor.WHITE); } catch (Throwable ignored2) {} }
+                // oprava po zásahu zvenku → vrať i vanilla volby (mohly se změnit spolu s členstvím)
+                if (cached) applyVanillaTeamDefaults(t);
+            }
+
+            // přidej hráče (ze starého týmu na tomto boardu ho vyjme Bukkit)
+            try { t.addEntry(entry); } catch (Throwable ignored) {}
+            String prevTeam = state.entries.put(entry, newTeam);
+            if (prevTeam != null) vacated.add(prevTeam);
+            moved.add(p);
+        }
 
-                // přidej hráče
-                try { t.addEntry(p.getName()); } catch (Throwable ignored) {}
+        // 3) prázdné staré týmy pryč (nový klíč = nový tým, starý by jinak visel na boardu)
+        for (String name : vacated) {
+            Team ot = sb.getTeam(name);
+            if (ot == null) continue;
+            try { if (ot.getEntries().isEmpty()) ot.unregister(); } catch (Throwable ignored) {}
+        }
+        state.version = target.version();
+    }
 
-                // a hned „přebarvi“ přes NametagService (pokud je k dispozici)
-                if (nametagSvc != null) {
-                    try { nametagSvc.applyFor(p); } catch (Throwable ignored) {}
-                }
+    /** Poslední známé přiřazení entry → náš tým na jednom boardu. */
+    private static final class BoardAssign {
+        final Map<String, String> entries = new ConcurrentHashMap<>();
+        // verze TeamTarget, kterou board odpovídá; -1 = projít znovu (nový board / zásah zvenku)
+        volatile long version = -1L;
+
+        /** Sedí naše entry pořád v našich týmech? (O(1) na entry, bez paketů) */
+        boolean intact(Scoreboard sb) {
+            for (Map.Entry<String, String> e : entries.entrySet()) {
+                Team t = sb.getTeam(e.getValue());
+                if (t == null || !t.hasEntry(e.getKey())) return false;
+            }
+            return true;
+        }
+
+        /** Převezme aktuální stav boardu (naše ts.. týmy) – jediný plný průchod. */
+        static BoardAssign adopt(Scoreboard sb) {
+            BoardAssign st = new BoardAssign();
+            for (Team t : sb.getTeams()) {
+                String n = t.getName();
+                if (n == null || !n.startsWith(TEAM_PREFIX)) continue;
+                for (String entry : t.getEntries()) st.entries.put(entry, n);
             }
-            currentTeams.put(p.getUniqueId(), newTeam);
+            return st;
         }
     }
 
     // --- Anti-override watchdog ---
 
     private void watchdogScoreboards() {
+        // packet / list_order režim nemá server-side týmy → není co hlídat
+        if ("packet".equals(lastSbMode) || "list_order".equals(lastSbMode)) return;
         boolean log = plugin.getConfig().getBoolean("modules.tablist.sorting.anti_override.log", true);
         String sbMode = plugin.getConfig().getString("modules.tablist.sorting.scoreboard_mode", "per_viewer").toLowerCase(Locale.ROOT);
 
         if ("shared".equals(sbMode)) {
             Scoreboard main = Bukkit.getScoreboardManager().getMainScoreboard();
             ensureMarker(main);
+            verifyBoard(main, log);
             for (Player p : Bukkit.getOnlinePlayers()) {
                 ensureMarker(p.getScoreboard());
                 if (log) plugin.getLogger().fine("[TabSBS] [anti] checked marker (shared) for " + p.getName());
@@ -582,189 +752,127 @@ public final class TabSortingService {
         } else {
             for (Player p : Bukkit.getOnlinePlayers()) {
                 ensureMarker(p.getScoreboard());
+                verifyBoard(p.getScoreboard(), log);
                 if (log) plugin.getLogger().fine("[TabSBS] [anti] checked marker (per_viewer) for " + p.getName());
             }
         }
     }
 
-    // ===== comparator chain (TAB-like) =====
-    // (beze změn; jen zachováno z tvé implementace)
-
-    private Comparator<Player> buildComparator() {
-        List<Map<?,?>> types = plugin.getConfig().getMapList("modules.tablist.sorting.types");
-        List<Comparator<Player>> chain = new ArrayList<>();
+    /**
+     * NOVĚ: enforce přeskakuje boardy beze změny cíle → hráče, kterého z našeho týmu přesunul
+     * jiný plugin / /team / nt_ tým, najde až tahle kontrola; board se pak v příštím cyklu projde
+     * a hráč se vrátí (viz hasEntry v assignTeamsOnBoard).
+     */
+    private void verifyBoard(Scoreboard sb, boolean log) {
+        BoardAssign st = boardStates.get(sb);
+        if (st == null || st.version < 0 || st.intact(sb)) return;
+        st.version = -1L;
+        if (log) plugin.getLogger().fine("[TabSBS] [anti] team entries changed externally, reassigning");
+    }
 
-        if (!types.isEmpty()) {
-            for (Map<?,?> m : types) {
-                Object typeObj = m.get("type");
-                String type = (typeObj == null ? "NAME" : String.valueOf(typeObj)).toUpperCase(Locale.ROOT);
+    // ===== sort-key extrakce (TAB-like řetězec) =====
+    // Každý hráč se vyhodnotí PRÁVĚ 1× za cyklus (PAPI + Vault) do kompaktního SortKey,
+    // comparator pak porovnává jen primitivní hodnoty a lowercase jméno.
 
-                switch (type) {
-                    case "GROUP_ORDER" -> chain.add(groupOrder(toLowerList(m.get("order"))));
-                    case "PREFIX_MATCH" -> chain.add(prefixMatch(toLowerList(m.get("order"))));
-                    case "PAPI_NUMBER" -> {
-                        Object phNumObj = m.get("placeholder");
-                        String phNum = (phNumObj == null ? "" : String.valueOf(phNumObj));
-                        boolean desc = Boolean.TRUE.equals(m.get("desc"));
-                        chain.add(papiNumber(phNum, desc));
-                    }
-                    case "PAPI_STRING" -> {
-                        Object phStrObj = m.get("placeholder");
-                        String phStr = (phStrObj == null ? "" : String.valueOf(phStrObj));
-                        chain.add(papiString(phStr, toLowerList(m.get("order"))));
-                    }
-                    case "NAME" -> {
-                        boolean desc = Boolean.TRUE.equals(m.get("desc"));
-                        chain.add(name(desc));
-                    }
-                    default -> chain.add(name(false));
-                }
-            }
-        } else {
-            chain.add(legacyPriorityComparator());
-            chain.add(name(cfg.sorting().tieBreakerName() == TieBreakerName.DESC));
-        }
-
-        return chain.stream().reduce(Comparator::thenComparing).orElse(name(false));
+    private List<SortKey> extractSortKeys(Collection<? extends Player> online, SortPlan plan) {
+        List<SortKey> out = new ArrayList<>(online.size());
+        for (Player p : online) out.add(extractSortKey(p, plan));
+        return out;
     }
 
-    private String debugKeys(Player p) {
-        List<Map<?, ?>> types = plugin.getConfig().getMapList("modules.tablist.sorting.types");
-        StringBuilder sb = new StringBuilder();
-        if (!types.isEmpty()) {
-            for (Map<?, ?> m : types) {
-                Object typeObj = m.get("type");
-                String type = (typeObj == null ? "NAME" : String.valueOf(typeObj)).toUpperCase(Locale.ROOT);
-
-                switch (type) {
-                    case "GROUP_ORDER" -> {
-                        List<String> order = toLowerList(m.get("order"));
-                        String g = normGroup(p);
-                        int idx = order.indexOf(g);
-                        sb.append("GROUP=").append(g).append("(idx=").append(idx < 0 ? "n/a" : idx).append(") ");
-                    }
-                    case "PREFIX_MATCH" -> {
-                        List<String> order = toLowerList(m.get("order"));
-                        String px = normPrefix(p);
-                        int hit = -1;
-                        for (int i = 0; i < order.size(); i++) {
-                            if (wildcardMatch(px, order.get(i))) { hit = i; break; }
-                        }
-                        sb.append("PREFIX='").append(px).append("'(idx=").append(hit < 0 ? "n/a" : hit).append(") ");
-                    }
-                    case "PAPI_NUMBER" -> {
-                        Object phObj = m.get("placeholder");
-                        String ph = (phObj == null ? "" : String.valueOf(phObj));
-                        String raw = me.clip.placeholderapi.PlaceholderAPI.setPlaceholders(p, ph);
-                        double val = parseDoubleSafe(raw);
-                        boolean desc = Boolean.TRUE.equals(m.get("desc"));
-                        sb.append("PAPI#=").append(ph).append(" val=").append(val).append(desc ? " (desc) " : " ");
-                    }
-                    case "PAPI_STRING" -> {
-                        Object phObj = m.get("placeholder");
-                        String ph = (phObj == null ? "" : String.valueOf(phObj));
-                        String norm = (me.clip.placeholderapi.PlaceholderAPI.setPlaceholders(p, ph));
-                        norm = (norm == null ? "" : stripLegacyColors(norm).trim().toLowerCase(Locale.ROOT));
-                        List<String> order = toLowerList(m.get("order"));
-                        int idx = order.indexOf(norm);
-                        sb.append("PAPI$=").append(ph).append(" '").append(norm).append("'(idx=").append(idx < 0 ? "n/a" : idx).append(") ");
-                    }
-                    case "NAME" -> {
-                        boolean desc = Boolean.TRUE.equals(m.get("desc"));
-                        sb.append("NAME=").append(p.getName()).append(desc ? " (desc) " : " ");
-                    }
-                    default -> sb.append(type).append(" ");
-                }
+    private SortKey extractSortKey(Player p, SortPlan plan) {
+        List<SortPlan.Stage> stages = plan.stages();
+        double[] slots = new double[stages.size()];
+        String[] raw = new String[stages.size()]; // jen pro debug výpis
+        String group = null, prefix = null; // líně, max 1 Vault dotaz na hráče
+
+        for (int i = 0; i < stages.size(); i++) {
+            SortPlan.Stage st = stages.get(i);
+            if (st instanceof SortPlan.GroupOrder go) {
+                if (group == null) group = normGroup(p);
+                slots[i] = go.indexOf(group);
+                raw[i] = group;
+            } else if (st instanceof SortPlan.PrefixMatch pm) {
+                if (prefix == null) prefix = normPrefix(p);
+                slots[i] = pm.indexOf(prefix);
+                raw[i] = prefix;
+            } else if (st instanceof SortPlan.PapiNumber pn) {
+                String v = resolve(p, pn.placeholder());
+                double d = parseDoubleSafe(v);
+                slots[i] = pn.desc() ? -d : d;
+                raw[i] = v;
+            } else if (st instanceof SortPlan.PapiString ps) {
+                String v = resolve(p, ps.placeholder());
+                String norm = (v == null ? "" : stripLegacyColors(v).trim().toLowerCase(Locale.ROOT));
+                slots[i] = ps.indexOf(norm);
+                raw[i] = norm;
+            } else if (st instanceof SortPlan.LegacyPriority lp) {
+                if (group == null) group = normGroup(p);
+                if (prefix == null && !lp.prefixRules().isEmpty()) prefix = normPrefix(p);
+                slots[i] = lp.indexOf(group, prefix == null ? "" : prefix);
+                raw[i] = group;
+            } else {
+                raw[i] = p.getName();
             }
-        } else {
-            String g = normGroup(p);
-            String pxNorm = normPrefix(p);
-            int pr = resolvePriorityIndexLegacy(p, cfg.sorting(), g);
-            sb.append("LEGACY group=").append(g)
-                    .append(" prefix='").append(pxNorm).append("' prio=").append(pr).append(" ");
         }
-        return sb.toString().trim();
+        return new SortKey(p, p.getName().toLowerCase(Locale.ROOT), slots, raw);
     }
 
-    private Comparator<Player> groupOrder(List<String> order) {
-        return Comparator.comparingInt(p -> {
-            String g = normGroup(p);
-            int idx = order.indexOf(g);
-            return idx < 0 ? 999 : idx;
-        });
+    /** Připravený placeholder → hodnota; statický text (bez %) se vůbec neposílá do PAPI. */
+    private String resolve(Player p, SortPlan.PlaceholderHandle h) {
+        if (!h.dynamic()) return h.token();
+        return placeholders.apply(p, h.token());
     }
 
-    private Comparator<Player> prefixMatch(List<String> patterns) {
-        return Comparator.comparingInt(p -> {
-            String px = normPrefix(p);
-            if (px.isEmpty()) return 999;
-            for (int i = 0; i < patterns.size(); i++) {
-                if (wildcardMatch(px, patterns.get(i))) return i;
+    static Comparator<SortKey> keyComparator(SortPlan plan) {
+        final List<SortPlan.Stage> stages = plan.stages();
+        final int n = stages.size();
+        final boolean[] isName = new boolean[n];
+        final boolean[] nameDesc = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            if (stages.get(i) instanceof SortPlan.Name nm) {
+                isName[i] = true;
+                nameDesc[i] = nm.desc();
             }
-            return 999;
-        });
-    }
-
-    private Comparator<Player> papiNumber(String placeholder, boolean desc) {
+        }
         return (a, b) -> {
-            double va = parseDoubleSafe(PlaceholderAPI.setPlaceholders(a, placeholder));
-            double vb = parseDoubleSafe(PlaceholderAPI.setPlaceholders(b, placeholder));
-            int cmp = Double.compare(va, vb);
-            return desc ? -cmp : cmp;
+            for (int i = 0; i < n; i++) {
+                int c = isName[i]
+                        ? (nameDesc[i] ? b.name.compareTo(a.name) : a.name.compareTo(b.name))
+                        : Double.compare(a.slots[i], b.slots[i]);
+                if (c != 0) return c;
+            }
+            return 0;
         };
     }
 
-    private Comparator<Player> papiString(String placeholder, List<String> order) {
-        return Comparator.comparingInt(p -> {
-            String v = PlaceholderAPI.setPlaceholders(p, placeholder);
-            String norm = (v == null ? "" : stripLegacyColors(v).trim().toLowerCase(Locale.ROOT));
-            int idx = order.indexOf(norm);
-            return idx < 0 ? 999 : idx;
-        });
-    }
-
-    private Comparator<Player> name(boolean desc) {
-        Comparator<Player> c = Comparator.comparing(p -> p.getName().toLowerCase(Locale.ROOT));
-        return desc ? c.reversed() : c;
-    }
-
-    private Comparator<Player> legacyPriorityComparator() {
-        return Comparator.comparingInt(p -> {
-            String groupKey = normGroup(p);
-            return resolvePriorityIndexLegacy(p, cfg.sorting(), groupKey);
-        });
-    }
-
-    // ===== helpers/legacy =====
-
-    private int resolvePriorityIndexLegacy(Player p, SortingCfg s, String playerGroupKey) {
-        List<String> rules = s.priority();
-        String playerPrefixNorm = (chat != null)
-                ? stripLegacyColors(safe(chat.getPlayerPrefix(p))).trim().toLowerCase(Locale.ROOT)
-                : "";
-
-        for (int i = 0; i < rules.size(); i++) {
-            String rawRule = rules.get(i);
-            if (rawRule == null || rawRule.isBlank()) continue;
-
-            String rule = rawRule.trim().toLowerCase(Locale.ROOT);
-            int colon = rule.indexOf(':');
-            if (colon >= 0) {
-                String prefixPattern = rule.substring(colon + 1).trim();
-                if (!prefixPattern.isEmpty() && wildcardMatch(playerPrefixNorm, prefixPattern)) {
-                    return i;
-                }
-                continue;
-            }
-            if (rule.equals(playerGroupKey)) {
-                return i;
+    private String debugKeys(SortKey k, SortPlan plan) {
+        StringBuilder sb = new StringBuilder();
+        List<SortPlan.Stage> stages = plan.stages();
+        for (int i = 0; i < stages.size(); i++) {
+            SortPlan.Stage st = stages.get(i);
+            String idx = k.slots[i] >= SortPlan.UNMATCHED ? "n/a" : String.valueOf((int) k.slots[i]);
+            if (st instanceof SortPlan.GroupOrder) {
+                sb.append("GROUP=").append(k.raw[i]).append("(idx=").append(idx).append(") ");
+            } else if (st instanceof SortPlan.PrefixMatch) {
+                sb.append("PREFIX='").append(k.raw[i]).append("'(idx=").append(idx).append(") ");
+            } else if (st instanceof SortPlan.PapiNumber pn) {
+                sb.append("PAPI#=").append(pn.placeholder().token()).append(" val=").append(parseDoubleSafe(k.raw[i]))
+                        .append(pn.desc() ? " (desc) " : " ");
+            } else if (st instanceof SortPlan.PapiString ps) {
+                sb.append("PAPI$=").append(ps.placeholder().token()).append(" '").append(k.raw[i])
+                        .append("'(idx=").append(idx).append(") ");
+            } else if (st instanceof SortPlan.LegacyPriority) {
+                sb.append("LEGACY group=").append(k.raw[i]).append(" prio=").append((int) k.slots[i]).append(" ");
+            } else if (st instanceof SortPlan.Name nm) {
+                sb.append("NAME=").append(k.raw[i]).append(nm.desc() ? " (desc) " : " ");
             }
         }
-        int def = s.defaultPriority();
-        if (def >= 0) return Math.min(def, 99);
-        return 99;
+        return sb.toString().trim();
     }
 
+    // ===== helpers/legacy =====
+
     private boolean isAllowedHere(Player p) {
         if (!cfg.respectWorldsGate() || worldsGate == null) return true;
         return worldsGate.isScoreboardAllowedIn(p.getWorld());
@@ -796,11 +904,12 @@ public final class TabSortingService {
         catch (Throwable t) { return 0.0; }
     }
 
-    private static String buildSortKeyPrefix(int index) {
-        int v = Math.max(0, Math.min(255, index));
-        char[] hex = "0123456789abcdef".toCharArray();
-        int hi = (v >> 4) & 0xF, lo = v & 0xF;
-        return "§" + hex[hi] + "§" + hex[lo] + "§r";
+    /** Neviditelný prefix z hex klíče: každý znak jako §X, na konci §r (lexikografické pořadí = pořadí klíčů). */
+    private static String buildSortKeyPrefix(String key) {
+        if (key == null || key.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder(key.length() * 2 + 2);
+        for (int i = 0; i < key.length(); i++) sb.append('§').append(key.charAt(i));
+        return sb.append("§r").toString();
     }
 
     private static String translateAmpersand(String text) {
@@ -832,55 +941,40 @@ public final class TabSortingService {
         return sb.toString();
     }
 
-    private static boolean wildcardMatch(String text, String pattern) {
-        if (text == null) text = "";
-        if (pattern == null) pattern = "";
-        pattern = stripLegacyColors(pattern).toLowerCase(Locale.ROOT);
-        if (!pattern.contains("*")) return text.equals(pattern);
-        String[] parts = pattern.split("\\*", -1);
-        int pos = 0;
-        for (String part : parts) {
-            if (part.isEmpty()) continue;
-            int idx = text.indexOf(part, pos);
-            if (idx < 0) return false;
-            pos = idx + part.length();
-        }
-        return pattern.endsWith("*") || pos == text.length();
-    }
-
-    private static List<String> toLowerList(Object val) {
-        if (val == null) return Collections.emptyList();
-        if (val instanceof List<?> list) {
-            List<String> out = new ArrayList<>(list.size());
-            for (Object o : list) if (o != null) out.add(o.toString().trim().toLowerCase(Locale.ROOT));
-            return out;
-        }
-        String s = String.valueOf(val);
-        String[] parts = s.split(",");
-        List<String> out = new ArrayList<>(parts.length);
-        for (String p : parts) out.add(p.trim().toLowerCase(Locale.ROOT));
-        return out;
-    }
-
     private void cleanupAllBoardsAndNames() {
         Bukkit.getGlobalRegionScheduler().execute(plugin, () -> {
             // reset list name všem
             for (Player p : Bukkit.getOnlinePlayers()) {
                 try { p.setPlayerListName(null); } catch (Throwable ignored) {}
             }
-            // z aktuálních boardů každého hráče odstraníme naše týmy
-            for (Player p : Bukkit.getOnlinePlayers()) {
-                Scoreboard sb = p.getScoreboard();
-                for (Team t : new ArrayList<>(sb.getTeams())) {
-                    String n = t.getName();
-                    if (n != null && (n.equals(MARKER_TEAM) || n.startsWith(TEAM_PREFIX))) {
-                        try { t.unregister(); } catch (Throwable ignored) {}
-                    }
-                }
-            }
+            // z aktuálních boardů každého hráče odstraníme naše týmy (+ packet týmy u klientů)
+            unregisterBoardTeams();
+            packetTeams.clearAll();
+            packetApplied.clear();
+            teamTarget = null;
+            lastSbMode = null;
             currentTeams.clear();
+            lastListNames.clear();
+            orderIndex.clear();
+            sortKeys.clear();
+            listInfo.reset();
+            lastOrdersViaPackets = false;
         });
     }
+
+    /** Odregistruje naše týmy (ts…, marker) z aktuálních boardů všech hráčů. */
+    private void unregisterBoardTeams() {
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            Scoreboard sb = p.getScoreboard();
+            for (Team t : new ArrayList<>(sb.getTeams())) {
+                String n = t.getName();
+                if (n != null && (n.equals(MARKER_TEAM) || n.startsWith(TEAM_PREFIX))) {
+                    try { t.unregister(); } catch (Throwable ignored) {}
+                }
+            }
+        }
+        boardStates.clear();
+    }
     /** Vrátí true, pokud legacy text nemá žádné VIDITELNÉ znaky (po odbarvení). */
     private static boolean isVisiblyEmpty(String legacy) {
         String s = stripLegacyColors(legacy == null ? "" : legacy.replace('§','&')).trim();
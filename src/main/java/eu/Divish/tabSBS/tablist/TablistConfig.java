@@ -1,5 +1,8 @@
 package eu.Divish.tabSBS.tablist;
 
+import eu.Divish.tabSBS.papi.PlaceholderService;
+import eu.Divish.tabSBS.util.AliasTable;
+import eu.Divish.tabSBS.util.TextTemplate;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.plugin.Plugin;
 
@@ -8,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * Konfigurační wrapper pro modules.tablist.
@@ -22,6 +26,8 @@ public final class TablistConfig {
     // header/footer
     private final String headerRaw;
     private final String footerRaw;
+    private final TextTemplate headerTemplate; // NOVĚ: zkompilováno 1× při load()
+    private final TextTemplate footerTemplate;
 
     // efekty
     private final Effects.ScrollCfg scroll;
@@ -32,7 +38,6 @@ public final class TablistConfig {
     private final SortingCfg sorting;
 
     // pokročilé
-    private final double papiCacheSeconds;
     private final boolean respectWorldsGate;
     private final boolean pushOnJoin;
 
@@ -96,24 +101,35 @@ public final class TablistConfig {
         String tieStr = sortSec.getString("tie_breaker_name", "asc");
         TieBreakerName tie = TieBreakerName.fromString(tieStr);
 
-        int teamPadding = Math.max(0, Math.min(4, sortSec.getInt("team_number_padding", 2)));
+        // minimální šířka hex klíče; "ts" + 14 = 16 znaků (limit názvu týmu u starších klientů)
+        int teamPadding = Math.max(1, Math.min(14, sortSec.getInt("team_number_padding", 2)));
         boolean decorateNames = sortSec.getBoolean("decorate_names", true);
 
         boolean enforceProto = sortSec.getBoolean("enforce_via_protocollib", false);
+        SortingBackend backend = SortingBackend.fromString(sortSec.getString("backend", "teams"));
+
+        // NOVĚ: řetězec typů se zkompiluje 1× tady, ne v každém sort cyklu
+        SortPlan plan = SortPlan.compile(sortSec.getMapList("types"), priority, defaultPriority,
+                tie == TieBreakerName.DESC);
 
         SortingCfg sortingCfg = new SortingCfg(
-                sortEnabled, mode, source, priority, defaultPriority, tie, teamPadding, decorateNames, enforceProto
+                sortEnabled, mode, source, priority, defaultPriority, tie, teamPadding, decorateNames, enforceProto, plan, backend
         );
 
         // advanced
-        double papiCacheSec = Math.max(0.0, root.getDouble("papi_cache_seconds", 0.25));
         boolean respectGate = root.getBoolean("respect_worlds_gate", true);
         boolean pushJoin = root.getBoolean("push_on_join", true);
 
+        // NOVĚ: šablony + klasifikace globálních slotů (placeholders.global_expansions)
+        Set<String> globals = PlaceholderService.globalExpansions(plugin);
+        AliasTable aliases = PlaceholderService.aliases(plugin);
+        TextTemplate headerT = TextTemplate.compile(header != null ? header : "", aliases, globals);
+        TextTemplate footerT = TextTemplate.compile(footer != null ? footer : "", aliases, globals);
+
         return new TablistConfig(
-                enabled, upd, header, footer,
+                enabled, upd, header, footer, headerT, footerT,
                 scrollCfg, rainbowCfg, pulseCfg,
-                sortingCfg, papiCacheSec, respectGate, pushJoin
+                sortingCfg, respectGate, pushJoin
         );
     }
 
@@ -122,11 +138,12 @@ public final class TablistConfig {
             Duration updatePeriod,
             String headerRaw,
             String footerRaw,
+            TextTemplate headerTemplate,
+            TextTemplate footerTemplate,
             Effects.ScrollCfg scroll,
             Effects.RainbowCfg rainbow,
             Effects.PulseCfg pulse,
             SortingCfg sorting,
-            double papiCacheSeconds,
             boolean respectWorldsGate,
             boolean pushOnJoin
     ) {
@@ -134,11 +151,12 @@ public final class TablistConfig {
         this.updatePeriod = updatePeriod;
         this.headerRaw = headerRaw != null ? headerRaw : "";
         this.footerRaw = footerRaw != null ? footerRaw : "";
+        this.headerTemplate = headerTemplate;
+        this.footerTemplate = footerTemplate;
         this.scroll = scroll;
         this.rainbow = rainbow;
         this.pulse = pulse;
         this.sorting = sorting;
-        this.papiCacheSeconds = papiCacheSeconds;
         this.respectWorldsGate = respectWorldsGate;
         this.pushOnJoin = pushOnJoin;
     }
@@ -150,6 +168,8 @@ public final class TablistConfig {
 
     public String headerRaw() { return headerRaw; }
     public String footerRaw() { return footerRaw; }
+    public TextTemplate headerTemplate() { return headerTemplate; }
+    public TextTemplate footerTemplate() { return footerTemplate; }
 
     public Effects.ScrollCfg scroll() { return scroll; }
     public Effects.RainbowCfg rainbow() { return rainbow; }
@@ -157,7 +177,6 @@ public final class TablistConfig {
 
     public SortingCfg sorting() { return sorting; }
 
-    public double papiCacheSeconds() { return papiCacheSeconds; }
     public boolean respectWorldsGate() { return respectWorldsGate; }
     public boolean pushOnJoin() { return pushOnJoin; }
 
@@ -228,6 +247,19 @@ public final class TablistConfig {
         }
     }
 
+    /** Čím se vynucuje pořadí: týmy (+ neviditelný prefix) nebo nativní listOrder (klienti 1.21.2+). */
+    public enum SortingBackend {
+        TEAMS, LIST_ORDER;
+
+        public static SortingBackend fromString(String s) {
+            if (s == null) return TEAMS;
+            return switch (s.trim().toLowerCase(Locale.ROOT)) {
+                case "list_order", "listorder" -> LIST_ORDER;
+                default -> TEAMS;
+            };
+        }
+    }
+
     public static final class SortingCfg {
         private final boolean enabled;
         private final SortingMode mode;
@@ -238,11 +270,13 @@ public final class TablistConfig {
         private final int teamNumberPadding;
         private final boolean decorateNames;
         private final boolean enforceViaProtocolLib; // ← NOVÉ
+        private final SortPlan plan; // NOVĚ: zkompilovaný řetězec typů
+        private final SortingBackend backend;
 
         public SortingCfg(boolean enabled, SortingMode mode, String source, List<String> priority,
                           int defaultPriority, TieBreakerName tieBreakerName,
                           int teamNumberPadding, boolean decorateNames,
-                          boolean enforceViaProtocolLib) { // ← NOVÉ{
+                          boolean enforceViaProtocolLib, SortPlan plan, SortingBackend backend) { // ← NOVÉ{
             this.enabled = enabled;
             this.mode = mode;
             this.source = (source == null ? "vault_chat" : source);
@@ -252,6 +286,9 @@ public final class TablistConfig {
             this.teamNumberPadding = teamNumberPadding;
             this.decorateNames = decorateNames;
             this.enforceViaProtocolLib = enforceViaProtocolLib; // ← NOVÉ
+            this.plan = (plan != null ? plan
+                    : SortPlan.compile(Collections.emptyList(), this.priority, defaultPriority, tieBreakerName == TieBreakerName.DESC));
+            this.backend = (backend == null ? SortingBackend.TEAMS : backend);
         }
 
         public boolean enabled() { return enabled; }
@@ -263,6 +300,8 @@ public final class TablistConfig {
         public int teamNumberPadding() { return teamNumberPadding; }
         public boolean decorateNames() { return decorateNames; }
         public boolean enforceViaProtocolLib() { return enforceViaProtocolLib; } // ← NOVÝ GETTER
+        public SortPlan plan() { return plan; }
+        public SortingBackend backend() { return backend; }
 
     }
 }
@@ -51,7 +51,8 @@ public final class TablistListeners implements Listener {
         // Odstraníme interní mapování + okamžitě vyčistíme hráče z našich týmů a resetneme listName.
         sorting.remove(e.getPlayer());
         sorting.clearFor(e.getPlayer());
-        // Header/footer neřešíme – hráč už odchází.
+        // Header/footer neposíláme – hráč už odchází; jen zahodíme jeho PAPI cache a poslední render.
+        tablist.forget(e.getPlayer());
     }
 
     @EventHandler
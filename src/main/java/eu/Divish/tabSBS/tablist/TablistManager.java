@@ -1,8 +1,11 @@
 package eu.Divish.tabSBS.tablist;
 
+import eu.Divish.tabSBS.papi.AnimationService;
+import eu.Divish.tabSBS.papi.PlaceholderService;
+import eu.Divish.tabSBS.util.TextTemplate;
 import eu.Divish.tabSBS.worlds.WorldsGate;
+import eu.Divish.tabSBS.util.ComponentCache;
 import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
-import me.clip.placeholderapi.PlaceholderAPI;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
@@ -11,13 +14,24 @@ import org.bukkit.plugin.Plugin;
 
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Renderuje Tablist (header/footer) podle TablistConfigu.
  * - PAPI (pokud je k dispozici) + & barvy
  * - Efekty: scroll, rainbow, pulse
- * - PAPI cache (pro výkon)
+ * - PAPI hodnoty cachuje jen PlaceholderService (memo + refresh intervaly) – ten jediný řídí jejich stáří,
+ *   tady se žádná další vrstva s vlastním TTL nedrží
+ * - Header/footer jako předkompilované šablony; bez placeholderů a efektů se Component staví 1× na config
+ * - Šablona jen s globálními placeholdery (server_* apod.) se renderuje 1× za tick a Component se sdílí všem
+ * - Per-hráč header/footer bez efektů se znovu renderuje jen při změně některého placeholderu (verze vstupů)
+ * - Statický text s efekty: celý cyklus framů (lcm period scrollu, duhy a pulsu, max MAX_RING_FRAMES)
+ *   se předpočítá při načtení configu do kruhu hotových Componentů; update jen posune index
+ * - Fan-out: hráči se stejně vyhodnoceným textem (po PAPI) dostanou v rámci jednoho framu jeden společný
+ *   Component → efekty + deserialize běží O(unikátních výstupů), ne O(hráčů)
+ * - Dirty tracking: periodický update pošle paket jen hráči, jehož header/footer se změnil – nejdřív podle
+ *   identity Componentu (stejné vstupy), pak podle obsahu (equals; jiný render se stejným výsledkem);
+ *   počty odeslaných/přeskočených paketů ukazuje /tabsbs stats
  * - Respektování WorldsGate (volitelně)
  *
  * Úpravy:
@@ -29,6 +43,7 @@ public final class TablistManager {
 
     private final Plugin plugin;
     private final WorldsGate worldsGate; // může být null, když nechceš gate používat
+    private final PlaceholderService placeholders;
     private TablistConfig cfg;
 
     // plánovač
@@ -40,17 +55,44 @@ public final class TablistManager {
     private int scrollFooterIndex = 0;
     private int rainbowOffset = 0;
     private boolean pulseToggle = false;
-
-    // jednoduchá cache pro PAPI (key -> (value, expireAtMs))
-    private final Map<CacheKey, CacheVal> papiCache = new ConcurrentHashMap<>();
+    private int effectStep = 0; // počítadlo kroků efektů (invaliduje sdílený frame)
+    private int effectFrame = 0; // kroky od resetu efektů (index do kruhu framů)
+
+    // NOVĚ: hotový header/footer pro statický text bez efektů (null = renderuje se per hráč)
+    private Component staticHeader = null;
+    private Component staticFooter = null;
+    // NOVĚ: předpočítaný cyklus framů pro statický text s efekty (null = počítá se za běhu)
+    private Component[] headerRing = null;
+    private Component[] footerRing = null;
+    private static final int MAX_RING_FRAMES = 512;
+    // NOVĚ: animace (%animation:x%) použité v headeru/footeru
+    private Set<String> animated = Set.of();
+    // NOVĚ: globální header/footer vyrenderovaný 1× za tick pro všechny viewery
+    private SharedFrame shared = null;
+    // NOVĚ: poslední per-hráč render + verze vstupů (jen sekce bez efektů); weak → po odchodu hráče zmizí
+    private final Map<Player, Rendered> lastRendered = Collections.synchronizedMap(new WeakHashMap<>());
+    // NOVĚ: poslední odeslaný header/footer (identita Componentu = stejné vstupy → paket se neposílá)
+    private final Map<Player, Sent> lastSent = Collections.synchronizedMap(new WeakHashMap<>());
+    // NOVĚ: skupiny viewerů podle vyhodnoceného textu (platí pro 1 frame = tick + krok efektů)
+    private GroupFrame groups = null;
+    private final LongAdder groupRenders = new LongAdder();
+    private final LongAdder groupShared = new LongAdder();
+    // NOVĚ: čítače odeslání (odesláno / přeskočeno podle identity / přeskočeno podle obsahu)
+    private final LongAdder sendsSent = new LongAdder();
+    private final LongAdder sendsSkippedSame = new LongAdder();
+    private final LongAdder sendsSkippedEqual = new LongAdder();
+
+    private static final Component EMPTY = Component.empty();
 
     private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.builder()
             .character('&').hexColors().useUnusualXRepeatedCharacterHexFormat().build();
 
-    public TablistManager(Plugin plugin, TablistConfig cfg, WorldsGate worldsGate) {
+    public TablistManager(Plugin plugin, TablistConfig cfg, WorldsGate worldsGate, PlaceholderService placeholders) {
         this.plugin = plugin;
         this.cfg = cfg;
         this.worldsGate = worldsGate;
+        this.placeholders = placeholders;
+        prepareStatic();
     }
 
     // ===== lifecycle =====
@@ -73,7 +115,6 @@ public final class TablistManager {
         if (!running) {
             // I když neběží smyčka, pokud je modul vypínán z configu, je vhodné provést reset H/F.
             resetAllHeadersFooters();
-            papiCache.clear();
             return;
         }
         running = false;
@@ -83,7 +124,6 @@ public final class TablistManager {
         }
         // Okamžitý vizuální reset u všech online hráčů – aby vypnutí bylo vidět bez restartu
         resetAllHeadersFooters();
-        papiCache.clear();
     }
 
     /**
@@ -103,7 +143,9 @@ public final class TablistManager {
         scrollFooterIndex = 0;
         rainbowOffset = 0;
         pulseToggle = false;
-        papiCache.clear();
+        effectFrame = 0;
+        shared = null;
+        prepareStatic();
 
         boolean nowEnabled = this.cfg.enabled();
 
@@ -133,7 +175,7 @@ public final class TablistManager {
     /** Okamžitý push pouze danému hráči (použij třeba při joinu, když cfg.pushOnJoin=true). */
     public void pushTo(Player p) {
         if (!cfg.enabled()) return;
-        renderAndSend(p);
+        renderAndSend(p, true);
     }
 
     /** Alias pro jednotnost s ostatními službami (volá se z reloadAll). */
@@ -143,13 +185,34 @@ public final class TablistManager {
     public void pushToAll() {
         if (!cfg.enabled()) return;
         for (Player p : Bukkit.getOnlinePlayers()) {
-            renderAndSend(p);
+            renderAndSend(p, true);
         }
     }
 
     /** Alias – „refreshni všem“ (použijeme z /reload). */
     public void refreshAll() { pushToAll(); }
 
+    /** Posunuly se animace → pošli nový frame, jen když je header/footer používá. */
+    public void onAnimationsAdvanced(Set<String> names) {
+        if (!running || !cfg.enabled() || Collections.disjoint(animated, names)) return;
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            renderAndSend(p, false);
+        }
+    }
+
+    /** Zahodí vše, co si pamatujeme o hráči (volá se při PlayerQuitEvent). */
+    public void forget(Player p) {
+        if (p == null) return;
+        lastRendered.remove(p);
+        lastSent.remove(p);
+    }
+
+    /** Čítače odeslání header/footer (pro /tabsbs stats). */
+    public SendStats sendStats() {
+        return new SendStats(sendsSent.sum(), sendsSkippedSame.sum(), sendsSkippedEqual.sum(),
+                groupRenders.sum(), groupShared.sum());
+    }
+
     // ===== hlavní update loop =====
 
     private void updateAll() {
@@ -159,41 +222,206 @@ public final class TablistManager {
         stepEffects();
 
         for (Player p : Bukkit.getOnlinePlayers()) {
-            renderAndSend(p);
+            renderAndSend(p, false);
         }
     }
 
-    private void renderAndSend(Player p) {
+    /** @param force poslat i když se proti minulému odeslání nic nezměnilo (join, reload) */
+    private void renderAndSend(Player p, boolean force) {
         // per-world gate?
         if (cfg.respectWorldsGate() && worldsGate != null) {
             if (!worldsGate.isScoreboardAllowedIn(p.getWorld())) {
                 // Pokud je ve světě vypnuto, pošleme prázdný header/footer
-                sendHF(p, Component.empty(), Component.empty());
+                sendIfChanged(p, EMPTY, EMPTY, force);
+                return;
+            }
+        }
+
+        TablistConfig c = this.cfg;
+        Component h = staticHeader;
+        Component f = staticFooter;
+        Component[] hr = headerRing, fr = footerRing;
+        if (h == null && hr != null) h = hr[Math.floorMod(effectFrame, hr.length)];
+        if (f == null && fr != null) f = fr[Math.floorMod(effectFrame, fr.length)];
+        if (h == null) h = c.headerTemplate().isGlobal() ? shared(p, c).header() : perPlayer(p, c, true);
+        if (f == null) f = c.footerTemplate().isGlobal() ? shared(p, c).footer() : perPlayer(p, c, false);
+
+        sendIfChanged(p, h, f, force);
+    }
+
+    /**
+     * Pošle header/footer jen když se liší od minula: stejná identita Componentu = stejné vstupy,
+     * jinak ještě porovná obsah (efekty/per-hráč render umí dát nový objekt se stejným textem).
+     */
+    private void sendIfChanged(Player p, Component h, Component f, boolean force) {
+        Sent prev = lastSent.get(p);
+        if (!force && prev != null) {
+            if (prev.header() == h && prev.footer() == f) {
+                sendsSkippedSame.increment();
+                return;
+            }
+            if (Objects.equals(prev.header(), h) && Objects.equals(prev.footer(), f)) {
+                // drž nový objekt → příště zase stačí porovnat identitu
+                lastSent.put(p, new Sent(h, f));
+                sendsSkippedEqual.increment();
                 return;
             }
         }
+        sendHF(p, h, f);
+        sendsSent.increment();
+        lastSent.put(p, new Sent(h, f));
+    }
 
-        String headerBase = cfg.headerRaw();
-        String footerBase = cfg.footerRaw();
+    /**
+     * Globální části pro aktuální tick; první viewer v ticku je vyrenderuje, ostatní jen sdílí.
+     * Sekce bez efektů se stejnou verzí vstupů převezme Component z minulého framu (→ žádný paket).
+     */
+    private SharedFrame shared(Player p, TablistConfig c) {
+        int now = placeholders.currentTick();
+        SharedFrame sf = this.shared;
+        if (sf != null && sf.tick() == now && sf.cfg() == c && sf.step() == effectStep) return sf;
+
+        boolean reuse = (sf != null && sf.cfg() == c);
+        Component h = null, f = null;
+        long hv = -1L, fv = -1L;
+        if (c.headerTemplate().isGlobal()) {
+            hv = placeholders.version(p, c.headerTemplate());
+            h = (reuse && !hasEffects(c, true) && sf.header() != null && sf.headerVersion() == hv)
+                    ? sf.header() : render(p, c.headerTemplate(), true);
+        }
+        if (c.footerTemplate().isGlobal()) {
+            fv = placeholders.version(p, c.footerTemplate());
+            f = (reuse && !hasEffects(c, false) && sf.footer() != null && sf.footerVersion() == fv)
+                    ? sf.footer() : render(p, c.footerTemplate(), false);
+        }
+        sf = new SharedFrame(now, effectStep, c, h, hv, f, fv);
+        this.shared = sf;
+        return sf;
+    }
 
-        // PAPI
-        headerBase = applyPapiWithCache(p, headerBase);
-        footerBase = applyPapiWithCache(p, footerBase);
+    /**
+     * Per-hráč header/footer. Bez efektů je výstup funkcí jen vstupních hodnot → při stejné verzi
+     * vstupů vrátíme minulý Component; s efekty se mění každý krok, takže se renderuje vždy.
+     */
+    private Component perPlayer(Player p, TablistConfig c, boolean isHeader) {
+        TextTemplate t = isHeader ? c.headerTemplate() : c.footerTemplate();
+        if (hasEffects(c, isHeader)) return render(p, t, isHeader);
+
+        long v = placeholders.version(p, t);
+        Rendered r = lastRendered.get(p);
+        if (r == null || r.cfg != c) {
+            r = new Rendered(c);
+            lastRendered.put(p, r);
+        }
+        if (isHeader) {
+            if (r.header == null || r.headerVersion != v) { r.header = render(p, t, true); r.headerVersion = v; }
+            return r.header;
+        }
+        if (r.footer == null || r.footerVersion != v) { r.footer = render(p, t, false); r.footerVersion = v; }
+        return r.footer;
+    }
 
-        // efekty
-        headerBase = applyEffects(headerBase, true);
-        footerBase = applyEffects(footerBase, false);
+    private static boolean hasEffects(TablistConfig c, boolean isHeader) {
+        return isHeader
+                ? c.scroll().header() || c.rainbow().header() || c.pulse().header()
+                : c.scroll().footer() || c.rainbow().footer() || c.pulse().footer();
+    }
 
-        // & -> Adventure
-        Component h = LEGACY.deserialize(headerBase);
-        Component f = LEGACY.deserialize(footerBase);
+    /** PAPI sloty (přes memo PlaceholderService) → efekty → & -> Adventure. */
+    private Component render(Player p, TextTemplate t, boolean isHeader) {
+        return fanOut(t.isStatic() ? t.source() : placeholders.render(p, t), isHeader);
+    }
 
-        sendHF(p, h, f);
+    /**
+     * Efekty + deserialize pro vyhodnocený text; stejný text ve stejném framu (tick + krok efektů)
+     * vrátí už hotový Component → skupina viewerů sdílí jeden render i jednu identitu (→ dirty check).
+     */
+    private Component fanOut(String resolved, boolean isHeader) {
+        int now = placeholders.currentTick();
+        GroupFrame g = this.groups;
+        if (g == null || g.tick() != now || g.step() != effectStep || g.cfg() != cfg) {
+            g = new GroupFrame(now, effectStep, cfg, new HashMap<>(), new HashMap<>());
+            this.groups = g;
+        }
+        Map<String, Component> byText = isHeader ? g.header() : g.footer();
+        Component c = byText.get(resolved);
+        if (c != null) {
+            groupShared.increment();
+            return c;
+        }
+        // scroll/rainbow/pulse dávají v každém kroku jiný text → mimo sdílenou LRU (jen by z ní vytlačil
+        // opakované texty, stejně jako ring v buildRing); bez efektů jde text přes ComponentCache
+        c = hasEffects(cfg, isHeader)
+                ? LEGACY.deserialize(applyEffects(resolved, isHeader))
+                : ComponentCache.deserialize(resolved);
+        groupRenders.increment();
+        byText.put(resolved, c);
+        return c;
+    }
+
+    /** Statický header/footer (bez placeholderů i efektů) se převede na Component jen jednou. */
+    private void prepareStatic() {
+        TablistConfig c = this.cfg;
+        boolean headerFx = hasEffects(c, true);
+        boolean footerFx = hasEffects(c, false);
+        this.staticHeader = (!headerFx && c.headerTemplate().isStatic()) ? ComponentCache.deserialize(c.headerTemplate().source()) : null;
+        this.staticFooter = (!footerFx && c.footerTemplate().isStatic()) ? ComponentCache.deserialize(c.footerTemplate().source()) : null;
+        this.headerRing = (headerFx && c.headerTemplate().isStatic()) ? buildRing(c, c.headerTemplate().source(), true) : null;
+        this.footerRing = (footerFx && c.footerTemplate().isStatic()) ? buildRing(c, c.footerTemplate().source(), false) : null;
+        this.animated = AnimationService.namesIn(c.headerTemplate(), c.footerTemplate());
+    }
+
+    /**
+     * Všechny framy efektů pro statický text; frame k = stav po k krocích od resetu.
+     * Delší cyklus než MAX_RING_FRAMES → null (renderuje se za běhu jako dřív).
+     */
+    private static Component[] buildRing(TablistConfig c, String text, boolean isHeader) {
+        var sc = c.scroll();
+        var rb = c.rainbow();
+        var pl = c.pulse();
+        boolean scroll = isHeader ? sc.header() : sc.footer();
+        boolean rainbow = isHeader ? rb.header() : rb.footer();
+        boolean pulse = isHeader ? pl.header() : pl.footer();
+        int scrollStep = Math.max(1, sc.stepChars());
+        int rbStep = Math.max(0, rb.stepPerUpdate());
+
+        long period = 1;
+        if (scroll) {
+            for (String line : text.split("\n", -1)) {
+                int width = Math.max(sc.minWidth(), visibleLength(line));
+                int len = visibleLength(padRight(line, width + 1));
+                if (len > 0) period = lcm(period, len / gcd(len, scrollStep));
+                if (period > MAX_RING_FRAMES) return null;
+            }
+        }
+        if (rainbow) {
+            int n = (rb.palette() == null || rb.palette().isEmpty()) ? 1 : rb.palette().size();
+            period = lcm(period, rbStep == 0 ? 1 : n / gcd(n, rbStep));
+        }
+        if (pulse) period = lcm(period, 2);
+        if (period > MAX_RING_FRAMES) return null;
+
+        Component[] ring = new Component[(int) period];
+        for (int k = 0; k < ring.length; k++) {
+            ring[k] = LEGACY.deserialize(applyEffects(c, text, isHeader, k * scrollStep, k * rbStep, (k & 1) == 1));
+        }
+        return ring;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) { long t = a % b; a = b; b = t; }
+        return Math.max(1, a);
+    }
+
+    private static long lcm(long a, long b) {
+        return a / gcd(a, b) * b;
     }
 
     // ===== efekty =====
 
     private void stepEffects() {
+        effectStep++;
+        effectFrame++;
         // scroll posun
         var sc = cfg.scroll();
         if (sc.header()) scrollHeaderIndex += Math.max(1, sc.stepChars());
@@ -213,12 +441,19 @@ public final class TablistManager {
     }
 
     private String applyEffects(String src, boolean isHeader) {
+        return applyEffects(cfg, src, isHeader,
+                isHeader ? scrollHeaderIndex : scrollFooterIndex, rainbowOffset, pulseToggle);
+    }
+
+    /** Efekty pro daný stav (scroll index, posun duhy, fáze pulsu) – i pro předpočet kruhu framů. */
+    private static String applyEffects(TablistConfig cfg, String src, boolean isHeader,
+                                       int scrollIndex, int rainbowOffset, boolean pulseToggle) {
         if (src == null) src = "";
 
         // Scroll
         var sc = cfg.scroll();
         if ((isHeader && sc.header()) || (!isHeader && sc.footer())) {
-            src = marquee(src, isHeader ? scrollHeaderIndex : scrollFooterIndex, sc.minWidth());
+            src = marquee(src, scrollIndex, sc.minWidth());
         }
 
         // Rainbow
@@ -274,34 +509,6 @@ public final class TablistManager {
         return String.join("\n", lines);
     }
 
-    // ===== PAPI + cache =====
-
-    private String applyPapiWithCache(Player p, String text) {
-        if (text == null || text.isEmpty()) return "";
-        double cacheSec = cfg.papiCacheSeconds();
-        if (cacheSec <= 0.0) {
-            return evalPapi(p, text);
-        }
-        CacheKey key = new CacheKey(p.getUniqueId(), text);
-        long now = System.currentTimeMillis();
-        CacheVal cv = papiCache.get(key);
-        if (cv != null && cv.expiresAtMs >= now) {
-            return cv.value;
-        }
-        String val = evalPapi(p, text);
-        long ttl = (long) Math.ceil(cacheSec * 1000.0);
-        papiCache.put(key, new CacheVal(val, now + ttl));
-        return val;
-    }
-
-    private String evalPapi(Player p, String text) {
-        if (Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) {
-            try { return PlaceholderAPI.setPlaceholders(p, text); }
-            catch (Throwable ignored) {}
-        }
-        return text;
-    }
-
     // ===== odeslání hráči =====
 
     private void sendHF(Player p, Component header, Component footer) {
@@ -330,6 +537,7 @@ public final class TablistManager {
 
     /** Resetuje header/footer jednomu hráči. */
     private void resetHeaderFooter(Player p) {
+        lastSent.remove(p);
         try {
             p.sendPlayerListHeaderAndFooter(Component.empty(), Component.empty());
         } catch (Throwable t) {
@@ -399,6 +607,27 @@ public final class TablistManager {
 
     // ===== cache datové struktury =====
 
-    private record CacheKey(UUID playerId, String rawText) {}
-    private record CacheVal(String value, long expiresAtMs) {}
+    private static final class Rendered {
+        final TablistConfig cfg;
+        long headerVersion = -1L, footerVersion = -1L;
+        Component header, footer;
+
+        Rendered(TablistConfig cfg) { this.cfg = cfg; }
+    }
+
+    private record SharedFrame(int tick, int step, TablistConfig cfg,
+                               Component header, long headerVersion, Component footer, long footerVersion) {}
+    private record Sent(Component header, Component footer) {}
+
+    /** Vyhodnocený text → hotový Component pro jeden frame (header/footer zvlášť). */
+    private record GroupFrame(int tick, int step, TablistConfig cfg,
+                              Map<String, Component> header, Map<String, Component> footer) {}
+
+    /**
+     * Odesláno / přeskočeno (stejný objekt) / přeskočeno (stejný obsah);
+     * renders = unikátní výstupy vyrenderované, shared = kolikrát se výstup jen převzal od skupiny.
+     */
+    public record SendStats(long sent, long skippedSame, long skippedEqual, long renders, long shared) {
+        public long skipped() { return skippedSame + skippedEqual; }
+    }
 }
@@ -0,0 +1,90 @@
+package eu.Divish.tabSBS.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tabulka aliasů (zkratka → reálný placeholder, např. %online% → %server_online%) zkompilovaná do trie.
+ * - {@link #apply(String)} přepíše všechny aliasy v jednom průchodu textem (nejdelší shoda vyhrává),
+ *   výsledek se už znovu neprochází → alias nemůže vzniknout z jiného přepisu
+ * - text bez aliasu se vrací jako stejný objekt (žádná alokace)
+ *
+ * Neměnná, thread-safe. Šablony ({@link TextTemplate}) ji aplikují už při kompilaci,
+ * takže render aliasy vůbec neřeší.
+ */
+public final class AliasTable {
+
+    public static final AliasTable EMPTY = new AliasTable(Map.of());
+
+    private final Map<String, String> aliases;
+    private final Node root = new Node();
+
+    private AliasTable(Map<String, String> aliases) {
+        this.aliases = Collections.unmodifiableMap(new LinkedHashMap<>(aliases));
+        for (Map.Entry<String, String> e : this.aliases.entrySet()) {
+            Node n = root;
+            for (int i = 0; i < e.getKey().length(); i++) {
+                n = n.next.computeIfAbsent(e.getKey().charAt(i), c -> new Node());
+            }
+            n.replacement = e.getValue();
+            n.length = e.getKey().length();
+        }
+    }
+
+    /** Prázdné klíče a hodnoty se ignorují. */
+    public static AliasTable of(Map<String, String> aliases) {
+        if (aliases == null || aliases.isEmpty()) return EMPTY;
+        Map<String, String> clean = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : aliases.entrySet()) {
+            if (e.getKey() == null || e.getKey().isEmpty() || e.getValue() == null) continue;
+            clean.put(e.getKey(), e.getValue());
+        }
+        return clean.isEmpty() ? EMPTY : new AliasTable(clean);
+    }
+
+    /** Přepíše aliasy v textu jedním průchodem. */
+    public String apply(String s) {
+        if (s == null) return "";
+        if (aliases.isEmpty() || s.isEmpty()) return s;
+
+        StringBuilder out = null;
+        int last = 0;
+        int i = 0;
+        while (i < s.length()) {
+            Node hit = longestMatch(s, i);
+            if (hit == null) {
+                i++;
+                continue;
+            }
+            if (out == null) out = new StringBuilder(s.length() + 16);
+            out.append(s, last, i).append(hit.replacement);
+            i += hit.length;
+            last = i;
+        }
+        if (out == null) return s;
+        return out.append(s, last, s.length()).toString();
+    }
+
+    public boolean isEmpty() { return aliases.isEmpty(); }
+
+    // ===== interní =====
+
+    private Node longestMatch(String s, int from) {
+        Node n = root;
+        Node best = null;
+        for (int j = from; j < s.length(); j++) {
+            n = n.next.get(s.charAt(j));
+            if (n == null) break;
+            if (n.replacement != null) best = n;
+        }
+        return best;
+    }
+
+    private static final class Node {
+        final Map<Character, Node> next = new HashMap<>(4);
+        String replacement; // != null → konec aliasu
+        int length;
+    }
+}
@@ -0,0 +1,78 @@
+package eu.Divish.tabSBS.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Malá cache omezená velikostí (bez externí knihovny).
+ * - max entries: při překročení se vyhodí nejdéle nepoužitá položka (LRU, access-order)
+ * - bez expirace – hodnoty, které stárnou (PAPI), si drží PlaceholderService, ne tahle cache
+ * - čítače hit/miss/eviction pro /tabsbs stats
+ *
+ * Thread-safe (synchronized); operace jsou O(1).
+ */
+public final class BoundedCache<K, V> {
+
+    private final int maxEntries;
+    private final Map<K, V> map;
+
+    private long hits, misses, evictions;
+
+    public BoundedCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() <= BoundedCache.this.maxEntries) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /** Uložená hodnota, jinak null. */
+    public synchronized V get(K key) {
+        V v = map.get(key);
+        if (v == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return v;
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, value);
+    }
+
+    /**
+     * Uložená hodnota, jinak ji spočítá a uloží. Loader běží mimo zámek
+     * – při souběhu vyhraje poslední zápis, což u cache nevadí.
+     */
+    public V get(K key, Supplier<V> loader) {
+        V v = get(key);
+        if (v != null) return v;
+        v = loader.get();
+        if (v != null) put(key, v);
+        return v;
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(map.size(), maxEntries, hits, misses, evictions);
+    }
+
+    // ===== typy =====
+
+    /** Snímek čítačů (pro výpis). */
+    public record Stats(int size, int maxEntries, long hits, long misses, long evictions) {
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
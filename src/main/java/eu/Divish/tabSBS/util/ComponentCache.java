@@ -0,0 +1,41 @@
+package eu.Divish.tabSBS.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+/**
+ * Sdílená LRU cache legacy text (&-kódy, &x hex) → Adventure Component.
+ * - Header/footer, title, list name i prefix/suffix týmů se ve většině cyklů opakují beze změny,
+ *   takže místo nového lexování a stavby stromu komponent vrátíme hotový (neměnný) Component.
+ * - Omezená počtem položek (LRU), bez expirace; dlouhé texty (nad MAX_KEY_LENGTH) se necachují.
+ * - Čítače hit/miss/eviction ukazuje /tabsbs stats.
+ *
+ * Serializer je stejný, jaký dřív měl každý modul zvlášť (&, hex, &x&r&r&g&g&b&b).
+ */
+public final class ComponentCache {
+    private ComponentCache() {}
+
+    private static final int MAX_ENTRIES = 4096;
+    private static final int MAX_KEY_LENGTH = 2048;
+
+    private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.builder()
+            .character('&').hexColors().useUnusualXRepeatedCharacterHexFormat().build();
+
+    private static final BoundedCache<String, Component> CACHE = new BoundedCache<>(MAX_ENTRIES);
+
+    /** &-kódy → Component (z cache, když už byl stejný text převeden). */
+    public static Component deserialize(String legacy) {
+        if (legacy == null || legacy.isEmpty()) return Component.empty();
+        if (legacy.length() > MAX_KEY_LENGTH) return LEGACY.deserialize(legacy);
+        return CACHE.get(legacy, () -> LEGACY.deserialize(legacy));
+    }
+
+    public static BoundedCache.Stats stats() {
+        return CACHE.stats();
+    }
+
+    /** Zahodí vše (reload). */
+    public static void clear() {
+        CACHE.clear();
+    }
+}
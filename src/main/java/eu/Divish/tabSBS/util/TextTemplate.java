@@ -0,0 +1,157 @@
+package eu.Divish.tabSBS.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Předkompilovaný text z configu (header, footer, title, řádky sidebaru).
+ * - Zkompiluje se 1× při načtení configu: aliasy se přepíšou hned tady, text se rozdělí
+ *   na literály a placeholder sloty (%identifier_params%).
+ * - Render pak jen dosadí sloty a spojí hotové literály – žádné replace/skenování celého řetězce.
+ * - Text bez placeholderů je "statický" → volající ho může vyrenderovat jednou a držet navždy.
+ * - %animation:jmeno% je taky slot (globální – frame je pro všechny stejný), hodnotu dodá AnimationService.
+ * - Slot je "globální", když jeho expanze je v placeholders.global_expansions (stejná hodnota pro všechny);
+ *   text jen s globálními sloty ({@link #isGlobal()}) stačí vyrenderovat 1× za refresh pro všechny viewery.
+ *
+ * Neměnný, thread-safe.
+ */
+public final class TextTemplate {
+
+    public static final TextTemplate EMPTY = new TextTemplate("", List.of());
+
+    /** Začátek tokenu pojmenované animace: %animation:jmeno%. */
+    public static final String ANIMATION_PREFIX = "%animation:";
+
+    private final String source;          // text po přepsání aliasů (= výstup, když PAPI není)
+    private final List<Segment> segments;
+    private final List<String> tokens;    // unikátní tokeny v pořadí výskytu
+    private final int literalLength;
+    private final boolean global;
+
+    private TextTemplate(String source, List<Segment> segments) {
+        this.source = source;
+        this.segments = Collections.unmodifiableList(segments);
+        List<String> toks = new ArrayList<>();
+        int lit = 0;
+        boolean allGlobal = true;
+        for (Segment s : segments) {
+            if (s instanceof Slot slot) {
+                if (!toks.contains(slot.token())) toks.add(slot.token());
+                allGlobal &= slot.global();
+            } else {
+                lit += ((Literal) s).text().length();
+            }
+        }
+        this.tokens = Collections.unmodifiableList(toks);
+        this.literalLength = lit;
+        this.global = allGlobal && !toks.isEmpty();
+    }
+
+    // ===== kompilace =====
+
+    public static TextTemplate compile(String raw) {
+        return compile(raw, AliasTable.EMPTY, Set.of());
+    }
+
+    /**
+     * @param aliases zkratka → reálný placeholder (např. %online% → %server_online%), přepíše se při kompilaci
+     *                (jeden průchod trií) → render už aliasy neřeší
+     * @param globalExpansions identifikátory expanzí (lowercase), jejichž hodnota je stejná pro všechny hráče
+     */
+    public static TextTemplate compile(String raw, AliasTable aliases, Set<String> globalExpansions) {
+        if (raw == null || raw.isEmpty()) return EMPTY;
+        String text = aliases.apply(raw);
+
+        List<Segment> out = new ArrayList<>();
+        int last = 0;
+        int i = text.indexOf('%');
+        while (i >= 0) {
+            int end = text.indexOf('%', i + 1);
+            if (end < 0) break;
+            if (!isToken(text, i + 1, end)) {
+                // "50% sleva %x%" → první '%' je literál, pokračuj od druhého
+                i = end;
+                continue;
+            }
+            if (i > last) out.add(new Literal(text.substring(last, i)));
+            String token = text.substring(i, end + 1);
+            out.add(new Slot(token, isAnimationToken(token) || globalExpansions.contains(identifierOf(token))));
+            last = end + 1;
+            i = text.indexOf('%', last);
+        }
+        if (last < text.length()) out.add(new Literal(text.substring(last)));
+        return new TextTemplate(text, out);
+    }
+
+    // ===== render =====
+
+    /** Dosadí sloty přes resolver (token → hodnota) a spojí s literály. */
+    public String render(Function<String, String> resolver) {
+        if (tokens.isEmpty()) return source;
+        StringBuilder sb = new StringBuilder(literalLength + tokens.size() * 8);
+        for (Segment s : segments) {
+            if (s instanceof Slot slot) {
+                String v = resolver.apply(slot.token());
+                sb.append(v != null ? v : "");
+            } else {
+                sb.append(((Literal) s).text());
+            }
+        }
+        return sb.toString();
+    }
+
+    // ===== gettery =====
+
+    public String source() { return source; }
+    public List<String> tokens() { return tokens; }
+    public boolean isStatic() { return tokens.isEmpty(); }
+    /** Má placeholdery a všechny jsou globální → výsledek je stejný pro všechny viewery. */
+    public boolean isGlobal() { return global; }
+    public boolean isEmpty() { return source.isEmpty(); }
+
+    /**
+     * Token = neprázdný identifikátor bez mezer s '_' (identifier_params), stejně jako ho bere PAPI,
+     * nebo animace (animation:jmeno).
+     * @param from index prvního znaku za '%', @param to index uzavírajícího '%'
+     */
+    public static boolean isToken(String s, int from, int to) {
+        if (to - from < 2) return false;
+        boolean underscore = false;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) return false;
+            if (c == '_') underscore = true;
+        }
+        int animFrom = from + ANIMATION_PREFIX.length() - 1;
+        return underscore || (to > animFrom && s.startsWith(ANIMATION_PREFIX, from - 1));
+    }
+
+    /** Je token ve tvaru %animation:jmeno%? */
+    public static boolean isAnimationToken(String token) {
+        return token != null && token.length() > ANIMATION_PREFIX.length() + 1
+                && token.startsWith(ANIMATION_PREFIX) && token.endsWith("%");
+    }
+
+    /** Identifikátor expanze z tokenu: "%server_online%" → "server" (lowercase). */
+    public static String identifierOf(String token) {
+        if (token == null) return "";
+        int from = token.startsWith("%") ? 1 : 0;
+        int us = token.indexOf('_', from);
+        int end = us >= 0 ? us : (token.endsWith("%") ? token.length() - 1 : token.length());
+        return end > from ? token.substring(from, end).toLowerCase(Locale.ROOT) : "";
+    }
+
+    // ===== segmenty =====
+
+    public sealed interface Segment permits Literal, Slot {}
+
+    /** Hotový kus textu (včetně & kódů). */
+    public record Literal(String text) implements Segment {}
+
+    /** Placeholder včetně procent, např. "%server_online%"; global = stejná hodnota pro všechny hráče. */
+    public record Slot(String token, boolean global) implements Segment {}
+}
@@ -0,0 +1,40 @@
+package eu.Divish.tabSBS.papi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlaceholderProfilerTest {
+
+    @Test
+    void percentilesStayWithinOneSubBucket() {
+        PlaceholderProfiler profiler = new PlaceholderProfiler();
+        // rovnoměrně 1 µs .. 10 ms
+        for (long us = 1; us <= 10_000; us++) profiler.recordEval("%x%", us * 1000L);
+
+        PlaceholderProfiler.Row r = profiler.snapshot().get(0);
+        assertNear(5_000, r.p50());
+        assertNear(9_500, r.p95());
+        assertNear(9_900, r.p99());
+        assertEquals(10_000, r.max());
+        assertEquals(5_000, r.avgMicros());
+    }
+
+    @Test
+    void bucketsCoverEveryValueInOrder() {
+        int prev = -1;
+        for (long us = 0; us < 1L << 20; us++) {
+            int b = PlaceholderProfiler.bucketOf(us);
+            assertTrue(b == prev || b == prev + 1, "bucket skok u " + us);
+            assertTrue(PlaceholderProfiler.lowerBound(b) <= us
+                    && us < PlaceholderProfiler.lowerBound(b) + PlaceholderProfiler.width(b), "mimo bucket: " + us);
+            prev = b;
+        }
+    }
+
+    /** Chyba do 1/8 (šířka pod-bucketu). */
+    private static void assertNear(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 8, expected + " vs " + actual);
+    }
+}
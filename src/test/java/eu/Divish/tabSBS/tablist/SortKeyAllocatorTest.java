@@ -0,0 +1,210 @@
+package eu.Divish.tabSBS.tablist;
+
+import eu.Divish.tabSBS.tablist.TabOrderIndex.SortKey;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortKeyAllocatorTest {
+
+    private static final int PLAYERS = 5000;
+    /** Limit názvu týmu u klienta. */
+    private static final int TEAM_NAME_LIMIT = 16;
+
+    /** Skupina → kills desc → jméno, stejně jako typický sorting.types v configu. */
+    private static final SortPlan PLAN = SortPlan.compile(List.of(
+            Map.of("type", "GROUP_ORDER", "order", List.of("admin", "vip", "default")),
+            Map.of("type", "PAPI_NUMBER", "placeholder", "%kills%", "desc", true),
+            Map.of("type", "NAME")), List.of(), 0, false);
+    private static final String[] GROUPS = {"admin", "vip", "default", "guest"};
+
+    /** Syntetický stav hráče – zdroj pravdy pro nezávislé seřazení v testu. */
+    private record Stats(Player player, String group, int kills) {}
+
+    @Test
+    void fiveThousandPlayersKeepOrderWithinLimits() {
+        Random rnd = new Random(42);
+        List<Stats> stats = new ArrayList<>();
+        for (Player p : TestPlayers.players(PLAYERS)) stats.add(randomStats(p, rnd));
+        Collections.shuffle(stats, rnd);
+
+        TabOrderIndex index = new TabOrderIndex();
+        SortKeyAllocator keys = new SortKeyAllocator(3);
+        assertPipeline(index, keys, stats);
+
+        assertTrue(keys.width() >= SortKeyAllocator.widthFor(PLAYERS));
+        assertTrue(keys.width() <= SortKeyAllocator.MAX_WIDTH);
+
+        // pár cyklů churnu: změny skóre/skupin, odchody a nové joiny
+        int joined = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                int at = rnd.nextInt(stats.size());
+                stats.set(at, randomStats(stats.get(at).player(), rnd));
+            }
+            for (int i = 0; i < 40; i++) {
+                Stats left = stats.remove(rnd.nextInt(stats.size()));
+                index.remove(left.player().getUniqueId());
+                keys.remove(left.player().getUniqueId());
+            }
+            for (int i = 0; i < 40; i++) {
+                stats.add(randomStats(TestPlayers.player(String.format("j%05d", joined++)), rnd));
+            }
+            assertPipeline(index, keys, stats);
+        }
+    }
+
+    @Test
+    void singleMoveChangesOneKey() {
+        List<Player> ordered = TestPlayers.players(PLAYERS);
+        SortKeyAllocator keys = new SortKeyAllocator(3);
+        keys.assign(ordered);
+
+        Player moved = ordered.remove(4000);
+        ordered.add(10, moved);
+        Set<UUID> changed = keys.assign(ordered);
+
+        assertEquals(Set.of(moved.getUniqueId()), changed);
+        assertOrdered(keys, ordered);
+    }
+
+    @Test
+    void joinAndQuitTouchOnlyThatPlayer() {
+        List<Player> ordered = TestPlayers.players(PLAYERS);
+        SortKeyAllocator keys = new SortKeyAllocator(3);
+        keys.assign(ordered);
+
+        ordered.remove(2500);
+        assertTrue(keys.assign(ordered).isEmpty());
+
+        Player joined = TestPlayers.player("zz_joined");
+        ordered.add(joined);
+        assertEquals(Set.of(joined.getUniqueId()), keys.assign(ordered));
+        assertOrdered(keys, ordered);
+    }
+
+    @Test
+    void widthGrowsPastOldCaps() {
+        SortKeyAllocator keys = new SortKeyAllocator(3);
+        List<Player> ordered = new ArrayList<>();
+        for (Player p : TestPlayers.players(PLAYERS)) {
+            ordered.add(p);
+            if (ordered.size() % 250 == 0) keys.assign(ordered);
+        }
+        keys.assign(ordered);
+        assertOrdered(keys, ordered);
+    }
+
+    @Test
+    void maxPaddingKeepsListOrderMonotonic() {
+        List<Player> ordered = TestPlayers.players(PLAYERS);
+        SortKeyAllocator keys = new SortKeyAllocator(SortKeyAllocator.MAX_WIDTH);
+        keys.assign(ordered);
+
+        assertEquals(SortKeyAllocator.MAX_WIDTH, keys.width());
+        assertOrdered(keys, ordered);
+    }
+
+    @Test
+    void keySpaceStaysWithinListOrderCap() {
+        long cap = 1L << (4 * SortKeyAllocator.MAX_KEY_WIDTH);
+        assertTrue(cap <= Integer.MAX_VALUE, "16^MAX_KEY_WIDTH se musí vejít do int listOrderu");
+
+        SortKeyAllocator keys = new SortKeyAllocator(SortKeyAllocator.MAX_WIDTH);
+        List<Player> ordered = TestPlayers.players(PLAYERS);
+        keys.assign(ordered);
+        assertEquals(cap, keys.space());
+        assertEquals((int) (cap - 1), ListInfoPusher.orderFromKey(0L, cap));
+        assertEquals(0, ListInfoPusher.orderFromKey(cap - 1, cap));
+
+        // join/quit churn na plném paddingu nesmí vytlačit klíče mimo rozsah ani rozbít pořadí
+        Random rnd = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            Player left = ordered.remove(rnd.nextInt(ordered.size()));
+            keys.remove(left.getUniqueId());
+            ordered.add(rnd.nextInt(ordered.size() + 1), TestPlayers.player(String.format("c%05d", i)));
+            if (i % 50 == 0) keys.assign(ordered);
+        }
+        keys.assign(ordered);
+        assertEquals(cap, keys.space());
+        for (Player p : ordered) {
+            long raw = keys.rawKey(p.getUniqueId());
+            assertTrue(raw >= 0 && raw < cap, p.getName() + " mimo rozsah: " + raw);
+        }
+        assertOrdered(keys, ordered);
+    }
+
+    /**
+     * Protáhne stav přes TabOrderIndex s produkčním komparátorem a alokátor, pak porovná
+     * výsledek s nezávislým List.sort nad Stats.
+     */
+    private static void assertPipeline(TabOrderIndex index, SortKeyAllocator keys, List<Stats> stats) {
+        List<SortKey> fresh = new ArrayList<>(stats.size());
+        for (Stats st : stats) fresh.add(sortKey(st));
+        List<Player> ordered = index.update(fresh, PLAN, TabSortingService.keyComparator(PLAN)).ordered();
+        keys.assign(ordered);
+
+        List<Stats> expected = new ArrayList<>(stats);
+        expected.sort(Comparator.<Stats>comparingInt(st -> groupRank(st.group()))
+                .thenComparing(Comparator.comparingInt(Stats::kills).reversed())
+                .thenComparing(st -> st.player().getName()));
+        List<Player> expectedPlayers = new ArrayList<>(expected.size());
+        for (Stats st : expected) expectedPlayers.add(st.player());
+
+        assertEquals(expectedPlayers, ordered);
+        assertOrdered(keys, expectedPlayers);
+    }
+
+    /** Sloty jako extractSortKey: index skupiny, -kills (desc), jméno přes komparátor. */
+    private static SortKey sortKey(Stats st) {
+        SortPlan.GroupOrder go = (SortPlan.GroupOrder) PLAN.stages().get(0);
+        Player p = st.player();
+        return new SortKey(p, p.getName().toLowerCase(Locale.ROOT),
+                new double[]{go.indexOf(st.group()), -st.kills(), 0},
+                new String[]{st.group(), String.valueOf(st.kills()), p.getName()});
+    }
+
+    private static int groupRank(String group) {
+        return switch (group) {
+            case "admin" -> 0;
+            case "vip" -> 1;
+            case "default" -> 2;
+            default -> Integer.MAX_VALUE;
+        };
+    }
+
+    private static Stats randomStats(Player p, Random rnd) {
+        return new Stats(p, GROUPS[rnd.nextInt(GROUPS.length)], rnd.nextInt(200));
+    }
+
+    /** Klíče i listOrder musí být ostře monotónní v pořadí TABu a názvy týmů v limitu. */
+    private static void assertOrdered(SortKeyAllocator keys, List<Player> ordered) {
+        String prev = null;
+        long prevOrder = Long.MAX_VALUE;
+        for (Player p : ordered) {
+            String key = keys.keyOf(p.getUniqueId());
+            assertNotNull(key, p.getName());
+            assertEquals(keys.width(), key.length());
+            assertTrue(("ts" + key).length() <= TEAM_NAME_LIMIT);
+            if (prev != null) assertTrue(prev.compareTo(key) < 0, prev + " !< " + key);
+            prev = key;
+
+            int order = ListInfoPusher.orderFromKey(keys.rawKey(p.getUniqueId()), keys.space());
+            assertTrue(order < prevOrder, "listOrder must decrease down the list");
+            prevOrder = order;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package eu.Divish.tabSBS.tablist;
+
+import eu.Divish.tabSBS.tablist.TabOrderIndex.SortKey;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TabOrderIndexTest {
+
+    private static final SortPlan PLAN = SortPlan.compile(null, List.of(), 0, false);
+    /** Skóre (slot 0) a pak jméno. */
+    private static final Comparator<SortKey> BASE =
+            Comparator.<SortKey>comparingDouble(k -> k.slots[0]).thenComparing(k -> k.name);
+
+    @Test
+    void quitWithoutOtherChangesDropsPlayer() {
+        List<Player> players = TestPlayers.players(5);
+        TabOrderIndex index = new TabOrderIndex();
+        index.update(keys(players), PLAN, BASE);
+
+        Player left = players.remove(1);
+        index.remove(left.getUniqueId());
+        TabOrderIndex.Delta delta = index.update(keys(players), PLAN, BASE);
+
+        assertFalse(delta.ordered().contains(left), "hráč po quitu nesmí zůstat v pořadí");
+        assertEquals(players, delta.ordered());
+        assertTrue(delta.changed());
+
+        // další cyklus beze změn → nic k odeslání
+        assertTrue(index.update(keys(players), PLAN, BASE).isEmpty());
+    }
+
+    @Test
+    void onlyChangedKeyIsReinserted() {
+        List<Player> players = TestPlayers.players(5);
+        TabOrderIndex index = new TabOrderIndex();
+        index.update(keys(players), PLAN, BASE);
+
+        List<SortKey> fresh = keys(players);
+        Player last = players.get(4);
+        fresh.set(4, key(last, -1)); // poslední vyskočí na první místo
+        TabOrderIndex.Delta delta = index.update(fresh, PLAN, BASE);
+
+        assertEquals(last, delta.ordered().get(0));
+        assertTrue(delta.changed());
+        assertTrue(index.update(fresh, PLAN, BASE).isEmpty());
+    }
+
+    @Test
+    void keyChangeWithoutMoveIsNotAChange() {
+        List<Player> players = TestPlayers.players(5);
+        TabOrderIndex index = new TabOrderIndex();
+        index.update(keys(players), PLAN, BASE);
+
+        List<SortKey> fresh = keys(players);
+        fresh.set(4, key(players.get(4), 5)); // jiné skóre, ale pořád poslední
+        TabOrderIndex.Delta delta = index.update(fresh, PLAN, BASE);
+
+        assertEquals(players, delta.ordered());
+        assertTrue(delta.isEmpty());
+    }
+
+    private static List<SortKey> keys(List<Player> players) {
+        List<SortKey> out = new ArrayList<>(players.size());
+        for (Player p : players) out.add(key(p, 0));
+        return out;
+    }
+
+    private static SortKey key(Player p, double score) {
+        return new SortKey(p, p.getName().toLowerCase(Locale.ROOT), new double[]{score, 0}, new String[2]);
+    }
+}
@@ -0,0 +1,43 @@
+package eu.Divish.tabSBS.tablist;
+
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/** Syntetičtí hráči pro testy řazení – umí jen getUniqueId()/getName(), zbytek vrací výchozí hodnoty. */
+final class TestPlayers {
+    private TestPlayers() {}
+
+    static Player player(String name) {
+        UUID id = UUID.nameUUIDFromBytes(name.getBytes());
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class},
+                (proxy, m, args) -> switch (m.getName()) {
+                    case "getUniqueId" -> id;
+                    case "getName", "toString" -> name;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> defaultValue(m.getReturnType());
+                });
+    }
+
+    static List<Player> players(int n) {
+        List<Player> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(player(String.format("p%05d", i)));
+        return out;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}